@@ -0,0 +1,432 @@
+package com.nanhuajiaren.cookieparse.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Generates a {@code CookieAdapter} for every class marked with {@code @GenerateAdapter}.
+ * The generated code binds exactly what the reflection based binding of {@code CookieParser} binds:
+ * parsing uses the public fields and the serialize methods, generating uses the declared fields and the deserialize methods
+ * (fields in declaration order, then methods ordered by key).
+ * If the generated code could not reach a bound member (for example a private field), a warning is reported
+ * and no adapter is generated, so the parser keeps using reflection for that class.
+ *
+ * The annotations are looked up by name, so this module does not depend on the library itself.
+ */
+@SupportedAnnotationTypes(CookieAdapterProcessor.GENERATE_ADAPTER)
+public class CookieAdapterProcessor extends AbstractProcessor {
+    private static final String ANNOTATIONS = "com.nanhuajiaren.cookieparse.annotations.";
+    static final String GENERATE_ADAPTER = ANNOTATIONS + "GenerateAdapter";
+    private static final String SERIALIZED_NAME = ANNOTATIONS + "SerializedName";
+    private static final String SERIALIZE_METHOD = ANNOTATIONS + "SerializeMethod";
+    private static final String DESERIALIZE_METHOD = ANNOTATIONS + "DeserializeMethod";
+    private static final String NO_METHOD = ANNOTATIONS + "NoMethod";
+    private static final String NO_SERIALIZE_OR_DESERIALIZE = ANNOTATIONS + "NoSerializeOrDeserialize";
+    private static final String ADAPTER = "com.nanhuajiaren.cookieparse.CookieAdapter";
+    private static final String SUFFIX = "_CookieAdapter";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement generateAdapter = processingEnv.getElementUtils().getTypeElement(GENERATE_ADAPTER);
+        if(generateAdapter == null){
+            return false;
+        }
+        for(Element element : roundEnv.getElementsAnnotatedWith(generateAdapter)){
+            if(element.getKind() != ElementKind.CLASS){
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                Model model = new Model(type);
+                if(model.problem != null){
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "No CookieAdapter generated for " + type.getQualifiedName() + ": " + model.problem
+                                    + " Reflection will be used instead.",model.problemElement);
+                    continue;
+                }
+                write(model);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Can't write CookieAdapter for " + type.getQualifiedName() + ": " + e.getMessage(),type);
+            }
+        }
+        return false;
+    }
+
+    /*
+     * What a class binds, resolved in the same order and with the same precedence as the reflection based binding.
+     */
+    private final class Model{
+        final TypeElement type;
+        final String packageName;
+        final String adapterName;
+        final boolean constructible;
+        final Map<String,Element> reads = new LinkedHashMap<>();
+        final Map<String,String> readKinds = new LinkedHashMap<>();
+        final Map<String,Element> writes = new LinkedHashMap<>();
+        String problem;
+        Element problemElement;
+
+        Model(TypeElement type){
+            this.type = type;
+            this.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+            this.adapterName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$','_') + SUFFIX;
+            //The adapter is in the same package, so any constructor but a private one can be called.
+            ExecutableElement noArgument = null;
+            for(ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())){
+                if(constructor.getParameters().isEmpty()){
+                    noArgument = constructor;
+                }
+            }
+            this.constructible = noArgument != null && !noArgument.getModifiers().contains(Modifier.PRIVATE)
+                    && !type.getModifiers().contains(Modifier.ABSTRACT);
+            if(noArgument != null && !constructible && !type.getModifiers().contains(Modifier.ABSTRACT)){
+                fail("The constructor without parameter is private.",noArgument);
+                return;
+            }
+            check(type);
+            if(problem == null){
+                collect();
+            }
+        }
+
+        private void check(TypeElement type){
+            Element current = type;
+            while(current instanceof TypeElement){
+                if(current.getModifiers().contains(Modifier.PRIVATE)){
+                    fail("The class or an enclosing class is private.",current);
+                    return;
+                }
+                if(((TypeElement) current).getNestingKind() == NestingKind.MEMBER
+                        && !current.getModifiers().contains(Modifier.STATIC)){
+                    fail("Inner classes are not supported.",current);
+                    return;
+                }
+                current = current.getEnclosingElement();
+            }
+            if(!type.getTypeParameters().isEmpty()){
+                fail("Generic classes are not supported.",type);
+            }
+        }
+
+        private void collect(){
+            boolean noMethod = find(type,NO_METHOD) != null;
+            for(VariableElement field : ElementFilter.fieldsIn(processingEnv.getElementUtils().getAllMembers(type))){
+                Set<Modifier> modifiers = field.getModifiers();
+                if(!modifiers.contains(Modifier.PUBLIC) || find(field,NO_SERIALIZE_OR_DESERIALIZE) != null){
+                    continue;
+                }
+                if(modifiers.contains(Modifier.FINAL)){
+                    //Reflection writes final instance fields, which generated code can't. Constants can't be written by either.
+                    if(!modifiers.contains(Modifier.STATIC)){
+                        fail("Field " + field.getSimpleName() + " is final.",field);
+                        return;
+                    }
+                    continue;
+                }
+                String kind = readKind(field.asType());
+                if(kind != null){
+                    String name = nameOf(field);
+                    reads.remove(name);
+                    reads.put(name,field);
+                    readKinds.put(name,kind);
+                }
+            }
+            for(VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())){
+                if(find(field,NO_SERIALIZE_OR_DESERIALIZE) != null){
+                    continue;
+                }
+                if(field.getModifiers().contains(Modifier.PRIVATE)){
+                    fail("Field " + field.getSimpleName() + " is private.",field);
+                    return;
+                }
+                writes.put(nameOf(field),field);
+            }
+            if(noMethod){
+                return;
+            }
+            List<ExecutableElement> methods = new ArrayList<>(ElementFilter.methodsIn(type.getEnclosedElements()));
+            methods.sort(Comparator.comparing((ExecutableElement method) -> {
+                AnnotationMirror deserialize = find(method,DESERIALIZE_METHOD);
+                return deserialize == null ? "" : valueOf(deserialize);
+            }));
+            for(ExecutableElement method : methods){
+                if(method.getModifiers().contains(Modifier.STATIC)){
+                    continue;
+                }
+                AnnotationMirror serialize = find(method,SERIALIZE_METHOD);
+                if(serialize != null && method.getParameters().size() == 1
+                        && isString(method.getParameters().get(0).asType())){
+                    if(!callable(method)){
+                        return;
+                    }
+                    String name = valueOf(serialize);
+                    reads.remove(name);
+                    reads.put(name,method);
+                    readKinds.put(name,"method");
+                }
+                AnnotationMirror deserialize = find(method,DESERIALIZE_METHOD);
+                if(deserialize != null && method.getParameters().isEmpty() && isString(method.getReturnType())){
+                    if(!callable(method)){
+                        return;
+                    }
+                    writes.put(valueOf(deserialize),method);
+                }
+            }
+        }
+
+        private boolean callable(ExecutableElement method){
+            if(method.getModifiers().contains(Modifier.PRIVATE)){
+                fail("Method " + method.getSimpleName() + "() is private.",method);
+                return false;
+            }
+            if(!method.getThrownTypes().isEmpty()){
+                fail("Method " + method.getSimpleName() + "() declares checked exceptions.",method);
+                return false;
+            }
+            return true;
+        }
+
+        private void fail(String message,Element element){
+            problem = message;
+            problemElement = element;
+        }
+    }
+
+    private void write(Model model) throws IOException{
+        String typeName = model.type.getQualifiedName().toString();
+        String qualifiedAdapterName = model.packageName.isEmpty() ? model.adapterName : model.packageName + "." + model.adapterName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedAdapterName,model.type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if(!model.packageName.isEmpty()){
+                out.println("package " + model.packageName + ";");
+                out.println();
+            }
+            out.println("/*");
+            out.println(" * Generated by " + CookieAdapterProcessor.class.getName() + " for " + typeName + ". Do not edit.");
+            out.println(" */");
+            out.println("public final class " + model.adapterName + " implements " + ADAPTER + "<" + typeName + "> {");
+            out.println("    @Override");
+            out.println("    public " + typeName + " newInstance() throws com.nanhuajiaren.cookieparse.CookieReflectException {");
+            if(model.constructible){
+                out.println("        return new " + typeName + "();");
+            }else{
+                out.println("        throw new com.nanhuajiaren.cookieparse.CookieReflectException(");
+                out.println("                " + literal("Can't find a constructor of " + typeName + " without parameter.") + ", null);");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public boolean read(" + typeName + " target, String key, String value) throws com.nanhuajiaren.cookieparse.CookieSyntaxException {");
+            out.println("        switch (key) {");
+            for(Map.Entry<String,Element> entry : model.reads.entrySet()){
+                String name = entry.getKey();
+                Element member = entry.getValue();
+                String kind = model.readKinds.get(name);
+                out.println("            case " + literal(name) + ":");
+                if(kind.equals("method")){
+                    out.println("                target." + member.getSimpleName() + "(value);");
+                }else{
+                    String converted;
+                    if(kind.equals("String")){
+                        converted = "value";
+                    }else if(kind.equals("Enum")){
+                        converted = ADAPTER + ".parseEnum(key, value, " + member.asType() + ".class)";
+                    }else{
+                        converted = ADAPTER + ".parse" + kind + "(key, value)";
+                    }
+                    out.println("                " + owner(member,"target") + "." + member.getSimpleName() + " = " + converted + ";");
+                }
+                out.println("                return true;");
+            }
+            out.println("            default:");
+            out.println("                return false;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void write(" + typeName + " source, " + ADAPTER + ".Sink sink) {");
+            int i = 0;
+            for(Map.Entry<String,Element> entry : model.writes.entrySet()){
+                Element member = entry.getValue();
+                String name = literal(entry.getKey());
+                if(member.getKind() == ElementKind.METHOD){
+                    String local = "value" + i;
+                    out.println("        String " + local + " = source." + member.getSimpleName() + "();");
+                    out.println("        if (" + local + " != null) {");
+                    out.println("            sink.accept(" + name + ", " + local + ");");
+                    out.println("        }");
+                }else if(member.asType().getKind().isPrimitive()){
+                    out.println("        sink.accept(" + name + ", String.valueOf(" + owner(member,"source") + "." + member.getSimpleName() + "));");
+                }else{
+                    String local = "value" + i;
+                    out.println("        Object " + local + " = " + owner(member,"source") + "." + member.getSimpleName() + ";");
+                    out.println("        if (" + local + " != null) {");
+                    String text = isEnum(member.asType()) ? "((java.lang.Enum<?>) " + local + ").name()" : local + ".toString()";
+                    out.println("            sink.accept(" + name + ", " + text + ");");
+                    out.println("        }");
+                }
+                i ++;
+            }
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /*
+     * Static fields are accessed through their declaring class instead of the instance.
+     */
+    private static String owner(Element member,String instance){
+        if(member.getModifiers().contains(Modifier.STATIC)){
+            return ((TypeElement) member.getEnclosingElement()).getQualifiedName().toString();
+        }
+        return instance;
+    }
+
+    /*
+     * @return The suffix of the {@code CookieAdapter.parseXxx} helper for the type, "String" for strings,
+     * or {@code null} if a field of that type is not parsed by the adapter.
+     * Fields of other types may still be parsed through a converter, which the parser does by reflection.
+     */
+    private static String readKind(TypeMirror type){
+        switch (type.getKind()){
+            case INT:
+                return "Int";
+            case LONG:
+                return "Long";
+            case SHORT:
+                return "Short";
+            case BYTE:
+                return "Byte";
+            case FLOAT:
+                return "Float";
+            case DOUBLE:
+                return "Double";
+            case BOOLEAN:
+                return "Boolean";
+            case CHAR:
+                return "Char";
+            case DECLARED:
+                if(isEnum(type)){
+                    return "Enum";
+                }
+                switch (type.toString()){
+                    case "java.lang.String":
+                        return "String";
+                    case "java.lang.Integer":
+                        return "Int";
+                    case "java.lang.Long":
+                        return "Long";
+                    case "java.lang.Short":
+                        return "Short";
+                    case "java.lang.Byte":
+                        return "Byte";
+                    case "java.lang.Float":
+                        return "Float";
+                    case "java.lang.Double":
+                        return "Double";
+                    case "java.lang.Boolean":
+                        return "Boolean";
+                    case "java.lang.Character":
+                        return "Char";
+                    default:
+                        return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isEnum(TypeMirror type){
+        return type.getKind() == TypeKind.DECLARED && ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+    }
+
+    private static boolean isString(TypeMirror type){
+        return type.getKind() == TypeKind.DECLARED && type.toString().equals("java.lang.String");
+    }
+
+    private String nameOf(VariableElement field){
+        AnnotationMirror serializedName = find(field,SERIALIZED_NAME);
+        return serializedName == null ? field.getSimpleName().toString() : valueOf(serializedName);
+    }
+
+    private static AnnotationMirror find(Element element,String annotationName){
+        for(AnnotationMirror mirror : element.getAnnotationMirrors()){
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if(annotationType.getQualifiedName().contentEquals(annotationName)){
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private String valueOf(AnnotationMirror mirror){
+        for(Map.Entry<? extends ExecutableElement,? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()){
+            if(entry.getKey().getSimpleName().contentEquals("value")){
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return "";
+    }
+
+    private static String literal(String text){
+        StringBuilder sb = new StringBuilder(text.length() + 2);
+        sb.append('"');
+        for(int i = 0;i < text.length();i ++){
+            char c = text.charAt(i);
+            switch (c){
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    if(c < 0x20 || c > 0x7e){
+                        sb.append(String.format("\\u%04x",(int) c));
+                    }else{
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
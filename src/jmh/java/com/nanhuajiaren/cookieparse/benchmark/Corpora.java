@@ -0,0 +1,77 @@
+package com.nanhuajiaren.cookieparse.benchmark;
+
+import java.util.Random;
+
+/*
+ * Cookie headers the benchmarks run on, generated from fixed seeds so every run sees the same input.
+ */
+final class Corpora{
+    private static final String ALPHANUMERIC = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private Corpora(){}
+
+    /*
+     * @param name "small": a session cookie with a handful of keys, about 100 bytes.
+     * "tracker": analytics and advertising cookies around the session keys, about 4 KB.
+     * "encoded": session keys whose values are mostly escapes, "%XX" and non-ASCII "%uXXXX".
+     */
+    static String header(String name){
+        switch (name){
+            case "small":
+                return session("abc123def456ghi789","en-US");
+            case "tracker":
+                return tracker();
+            case "encoded":
+                return session("a%20b%3bc%3d%u4f60%u597d%2c%22q%22","%u4e2d%u6587%20%28%u7b80%u4f53%29");
+            default:
+                throw new IllegalArgumentException("Unknown corpus " + name);
+        }
+    }
+
+    /*
+     * A plain value of the text kind given to {@link EncoderBenchmark}.
+     * @param name "ascii": nothing to escape. "encoded": many reserved ASCII characters. "nonAscii": mostly CJK text.
+     */
+    static String text(String name){
+        switch (name){
+            case "ascii":
+                return "GA1.2.1234567890.1617181920_session-token.value";
+            case "encoded":
+                return "path=/a b/c; q=\"x,y\" (z) [1]=@home?:%";
+            case "nonAscii":
+                return "你好，世界 こんにちは 안녕하세요 ￥100";
+            default:
+                throw new IllegalArgumentException("Unknown text " + name);
+        }
+    }
+
+    private static String session(String sid,String lang){
+        return "sid=" + sid + "; lang=" + lang + "; uid=1234567; score=98.625; expires=1735689600000; admin=false";
+    }
+
+    /*
+     * Tracker cookies until half of the header, the session keys, and more tracker cookies up to 4 KB.
+     */
+    private static String tracker(){
+        Random random = new Random(13);
+        String[] prefixes = {"_ga","_gid","_fbp","_gcl_au","__utma","__utmz","_hjid","_uetvid","IDE","AMCV_"};
+        StringBuilder sb = new StringBuilder(4200);
+        boolean sessionWritten = false;
+        for(int i = 0;sb.length() < 4096;i ++){
+            if(sb.length() > 0){
+                sb.append("; ");
+            }
+            if(!sessionWritten && sb.length() >= 2048){
+                sb.append(session("abc123def456ghi789","en-US"));
+                sessionWritten = true;
+                continue;
+            }
+            sb.append(prefixes[i % prefixes.length]).append(i).append("=GA1.2.");
+            int length = 20 + random.nextInt(60);
+            for(int j = 0;j < length;j ++){
+                sb.append(ALPHANUMERIC.charAt(random.nextInt(ALPHANUMERIC.length())));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.nanhuajiaren.cookieparse.benchmark;
+
+import com.nanhuajiaren.cookieparse.CookieParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * {@link CookieParser.DefaultTextEncoder} on its own, for values with nothing, some and mostly everything to escape.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,time = 1)
+@Measurement(iterations = 5,time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncoderBenchmark {
+    @Param({"ascii","encoded","nonAscii"})
+    public String text;
+
+    private final CookieParser.DefaultTextEncoder encoder = new CookieParser.DefaultTextEncoder();
+    private String plain;
+    private String escaped;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    @Setup
+    public void setup(){
+        plain = Corpora.text(text);
+        escaped = encoder.escape(plain);
+    }
+
+    @Benchmark
+    public String escape(){
+        return encoder.escape(plain);
+    }
+
+    @Benchmark
+    public String unescape(){
+        return encoder.unescape(escaped);
+    }
+
+    /*
+     * The range methods the parser uses, writing into a buffer that is kept.
+     */
+    @Benchmark
+    public StringBuilder escapeRange() throws IOException{
+        buffer.setLength(0);
+        encoder.escape(plain,0,plain.length(),buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public StringBuilder unescapeRange() throws IOException{
+        buffer.setLength(0);
+        encoder.unescape(escaped,0,escaped.length(),buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,39 @@
+package com.nanhuajiaren.cookieparse.benchmark;
+
+import com.nanhuajiaren.cookieparse.CookieParser;
+import com.nanhuajiaren.cookieparse.CookieReflectException;
+import com.nanhuajiaren.cookieparse.CookieSyntaxException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The very first call in a fresh JVM: class loading, reflection and binding setup, and interpreted code.
+ * Compare with the warmed up numbers of {@link ParseBenchmark} and {@link WriteBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class FirstCallBenchmark {
+
+    @Benchmark
+    public Session firstFromCookie() throws CookieSyntaxException,CookieReflectException{
+        return new CookieParser().fromCookie(Corpora.header("small"),Session.class);
+    }
+
+    @Benchmark
+    public String firstToCookie() throws CookieReflectException{
+        Session session = new Session();
+        session.sid = "abc123def456ghi789";
+        session.lang = "en-US";
+        return new CookieParser().toCookie(session);
+    }
+}
@@ -0,0 +1,79 @@
+package com.nanhuajiaren.cookieparse.benchmark;
+
+import com.nanhuajiaren.cookieparse.CookieObjectPool;
+import com.nanhuajiaren.cookieparse.CookieParser;
+import com.nanhuajiaren.cookieparse.CookieReflectException;
+import com.nanhuajiaren.cookieparse.CookieSyntaxException;
+import com.nanhuajiaren.cookieparse.DecodedValueCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Warmed up parsing of whole headers, into a map and into a class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,time = 1)
+@Measurement(iterations = 5,time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    @Param({"small","tracker","encoded"})
+    public String corpus;
+
+    private final CookieParser parser = new CookieParser();
+    private final CookieParser cachingParser = CookieParser.builder().valueCache(new DecodedValueCache(1024)).build();
+    private final CookieObjectPool<Session> pool = new CookieObjectPool<>(Session.class,64);
+    private final Session target = new Session();
+    private String header;
+
+    @Setup
+    public void setup(){
+        header = Corpora.header(corpus);
+    }
+
+    @Benchmark
+    public Map<String,String> fromCookieMap() throws CookieSyntaxException{
+        return parser.fromCookie(header);
+    }
+
+    @Benchmark
+    public Session fromCookieClass() throws CookieSyntaxException,CookieReflectException{
+        return parser.fromCookie(header,Session.class);
+    }
+
+    /*
+     * The same header again and again, so every value after the first call comes from the cache.
+     */
+    @Benchmark
+    public Session fromCookieClassCached() throws CookieSyntaxException,CookieReflectException{
+        return cachingParser.fromCookie(header,Session.class);
+    }
+
+    /*
+     * Filling the same instance again, so only the values are allocated.
+     */
+    @Benchmark
+    public Session fromCookieTarget() throws CookieSyntaxException,CookieReflectException{
+        return parser.fromCookie(header,target);
+    }
+
+    @Benchmark
+    public Session fromCookiePooled() throws CookieSyntaxException,CookieReflectException{
+        Session session = parser.fromCookie(header,pool);
+        pool.release(session);
+        return session;
+    }
+}
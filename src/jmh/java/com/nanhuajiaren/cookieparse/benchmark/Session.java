@@ -0,0 +1,13 @@
+package com.nanhuajiaren.cookieparse.benchmark;
+
+/*
+ * The bound class of the benchmarks, a typical session cookie.
+ */
+public class Session {
+    public String sid;
+    public String lang;
+    public int uid;
+    public double score;
+    public long expires;
+    public boolean admin;
+}
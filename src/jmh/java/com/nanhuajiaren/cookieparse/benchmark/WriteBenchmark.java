@@ -0,0 +1,54 @@
+package com.nanhuajiaren.cookieparse.benchmark;
+
+import com.nanhuajiaren.cookieparse.CookieParser;
+import com.nanhuajiaren.cookieparse.CookieReflectException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Warmed up cookie generation from an object and from a map holding the same pairs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3,time = 1)
+@Measurement(iterations = 5,time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBenchmark {
+    @Param({"small","encoded"})
+    public String corpus;
+
+    private final CookieParser parser = new CookieParser();
+    private Session session;
+    private Map<String,String> map;
+
+    @Setup
+    public void setup() throws Exception{
+        String header = Corpora.header(corpus);
+        session = parser.fromCookie(header,Session.class);
+        map = new LinkedHashMap<>(parser.fromCookie(header));
+    }
+
+    @Benchmark
+    public String toCookieObject() throws CookieReflectException{
+        return parser.toCookie(session);
+    }
+
+    @Benchmark
+    public String toCookieMap(){
+        return parser.toCookie(map);
+    }
+}
@@ -0,0 +1,82 @@
+package com.nanhuajiaren.cookieparse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * A {@link CharSequence} view of US-ASCII bytes, so cookies can be scanned without decoding them into a String first.
+ * Every byte is read as one character (bytes above 127 are read as ISO-8859-1, like most HTTP stacks do).
+ * Only {@link #toString()} copies anything.
+ */
+final class AsciiSequence implements CharSequence{
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    AsciiSequence(byte[] array,int offset,int length){
+        if(offset < 0 || length < 0 || offset + length > array.length){
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + array.length);
+        }
+        this.array = array;
+        this.buffer = null;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /*
+     * View the remaining bytes of {@code buffer}. The position of the buffer is not changed.
+     */
+    AsciiSequence(ByteBuffer buffer){
+        if(buffer.hasArray()){
+            this.array = buffer.array();
+            this.buffer = null;
+            this.offset = buffer.arrayOffset() + buffer.position();
+        }else{
+            this.array = null;
+            this.buffer = buffer;
+            this.offset = buffer.position();
+        }
+        this.length = buffer.remaining();
+    }
+
+    private AsciiSequence(byte[] array,ByteBuffer buffer,int offset,int length){
+        this.array = array;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length){
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return (char) ((array != null ? array[offset + index] : buffer.get(offset + index)) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || end > length || start > end){
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new AsciiSequence(array,buffer,offset + start,end - start);
+    }
+
+    @Override
+    public String toString() {
+        if(array != null){
+            return new String(array,offset,length,StandardCharsets.ISO_8859_1);
+        }
+        byte[] bytes = new byte[length];
+        for(int i = 0;i < length;i ++){
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes,StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.nanhuajiaren.cookieparse;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/*
+ * Writes characters into a {@link ByteBuffer} as US-ASCII bytes, starting at its position.
+ */
+final class ByteBufferAppendable implements Appendable{
+    private final ByteBuffer buffer;
+
+    ByteBufferAppendable(ByteBuffer buffer){
+        this.buffer = buffer;
+    }
+
+    /*
+     * @exception BufferOverflowException When the buffer is full.
+     * @exception IllegalArgumentException When {@code c} is not an ASCII character.
+     */
+    @Override
+    public Appendable append(char c) {
+        if(!isAscii(c)){
+            throw new IllegalArgumentException("Can't write non-ASCII character '" + c
+                    + "' into a cookie, use a TextEncoder that escapes it.");
+        }
+        buffer.put((byte) c);
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence text) {
+        return append(text,0,text.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence text, int start, int end) {
+        for(int i = start;i < end;i ++){
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /*
+     * @return Whether {@code c} can be written as a single US-ASCII byte.
+     */
+    static boolean isAscii(char c){
+        return c <= 127;
+    }
+
+    int position(){
+        return buffer.position();
+    }
+
+    /*
+     * Write bytes that are known to be US-ASCII.
+     */
+    void write(byte[] bytes){
+        buffer.put(bytes);
+    }
+}
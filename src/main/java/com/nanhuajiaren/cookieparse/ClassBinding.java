@@ -0,0 +1,580 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.annotations.CookieAttributes;
+import com.nanhuajiaren.cookieparse.annotations.DeserializeMethod;
+import com.nanhuajiaren.cookieparse.annotations.NoMethod;
+import com.nanhuajiaren.cookieparse.annotations.NoSerializeOrDeserialize;
+import com.nanhuajiaren.cookieparse.annotations.PackedCookie;
+import com.nanhuajiaren.cookieparse.annotations.SerializeMethod;
+import com.nanhuajiaren.cookieparse.annotations.SerializedName;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * The reflection metadata of a class, resolved once and shared by every parser.
+ * Parsing binds the public fields and the {@link SerializeMethod} methods,
+ * while generating binds the declared fields and the {@link DeserializeMethod} methods.
+ */
+final class ClassBinding<T>{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /*
+     * {@code Class.getRecordComponents()} and {@code RecordComponent.getName()}, looked up by reflection
+     * so the library still runs before Java 16. {@code null} if there are no records.
+     */
+    private static final Method GET_RECORD_COMPONENTS;
+    private static final Method COMPONENT_NAME;
+    /*
+     * Stands for a default value that is taken from a new instance on every {@link #reset(Object)}.
+     */
+    private static final Object FRESH = new Object();
+
+    static{
+        Method components = null;
+        Method name = null;
+        try {
+            components = Class.class.getMethod("getRecordComponents");
+            name = Class.forName("java.lang.reflect.RecordComponent").getMethod("getName");
+        } catch (ReflectiveOperationException e) {
+            components = null;
+        }
+        GET_RECORD_COMPONENTS = components;
+        COMPONENT_NAME = name;
+    }
+    private static final ClassValue<ClassBinding<?>> CACHE = new ClassValue<ClassBinding<?>>() {
+        @Override
+        protected ClassBinding<?> computeValue(Class<?> type) {
+            return new ClassBinding<>(type);
+        }
+    };
+
+    final Class<T> type;
+    final boolean noMethod;
+    final CookieAdapter<T> adapter;
+    /*
+     * Calls the constructor without parameter, whatever its visibility, or {@code null} if there is none.
+     */
+    private final MethodHandle factory;
+    private final ReflectiveOperationException factoryError;
+    /*
+     * Calls the canonical constructor of a record with an {@code Object[]} of its arguments, one per record component
+     * in the order the components are declared. {@code null} for any other class.
+     */
+    private final MethodHandle canonical;
+    /*
+     * The arguments of {@link #canonical} for keys missing from a cookie: {@code null}, 0 or {@code false}.
+     */
+    private final Object[] defaultArguments;
+    /*
+     * The values of the read fields of a new instance, resolved by the first {@link #reset(Object)}.
+     * A value that may be mutable, such as a list, is {@link #FRESH} instead, so targets never share it.
+     */
+    private volatile Object[] readDefaults;
+    private final ReadProperty[] readProperties;
+    /*
+     * The keys parsing looks for, in the order of {@link #readProperties}.
+     */
+    final NameTable readNames;
+    final List<WriteProperty> writeProperties;
+    /*
+     * Whether a field is written through a {@link ValueConverter} the parser may have registered,
+     * which a generated adapter knows nothing about.
+     */
+    final boolean customWrites;
+    /*
+     * The layout of a {@link PackedCookie} class, or {@code null}.
+     */
+    final PackedFormat packed;
+    /*
+     * The length of the longest cookie generated from this class so far, to size the next buffer.
+     * Races are harmless, it is only a hint.
+     */
+    int lengthHint = 64;
+    /*
+     * Cleared by the first lookup reported to a {@link CookieListener}, see {@link #claimFresh()}.
+     */
+    private final AtomicBoolean fresh = new AtomicBoolean(true);
+    /*
+     * The attributes of {@link CookieAttributes} without a name or value, resolved by the first {@link #attributes()}.
+     */
+    private volatile SetCookie attributes;
+    private final CookieAttributes attributesAnnotation;
+
+    private ClassBinding(Class<T> type){
+        this.type = type;
+        this.noMethod = type.isAnnotationPresent(NoMethod.class);
+        this.attributesAnnotation = type.getAnnotation(CookieAttributes.class);
+        this.adapter = findAdapter(type);
+        MethodHandle factory = null;
+        ReflectiveOperationException factoryError = null;
+        try {
+            factory = handleOf(type.getDeclaredConstructor()).asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException e) {
+            factoryError = e;
+        }
+        this.factory = factory;
+        this.factoryError = factoryError;
+        List<Field> components = recordFields(type);
+        MethodHandle canonical = null;
+        if(components != null){
+            try {
+                Class<?>[] parameterTypes = new Class<?>[components.size()];
+                for(int i = 0;i < parameterTypes.length;i ++){
+                    parameterTypes[i] = components.get(i).getType();
+                }
+                canonical = handleOf(type.getDeclaredConstructor(parameterTypes))
+                        .asSpreader(Object[].class,parameterTypes.length)
+                        .asType(MethodType.methodType(Object.class,Object[].class));
+            } catch (ReflectiveOperationException e) {
+                components = null;
+            }
+        }
+        this.canonical = canonical;
+        this.defaultArguments = components == null ? null : new Object[components.size()];
+        if(components != null){
+            for(int i = 0;i < components.size();i ++){
+                defaultArguments[i] = zeroOf(components.get(i).getType());
+            }
+        }
+        Map<String,ReadProperty> readMap = collectReadProperties(components);
+        this.readProperties = readMap.values().toArray(new ReadProperty[0]);
+        this.readNames = new NameTable(readMap.keySet().toArray(new String[0]));
+        this.writeProperties = Collections.unmodifiableList(collectWriteProperties());
+        boolean customWrites = false;
+        for(WriteProperty property : writeProperties){
+            customWrites |= property.valueType == ValueType.CUSTOM;
+        }
+        this.customWrites = customWrites;
+        PackedCookie packedCookie = type.getAnnotation(PackedCookie.class);
+        this.packed = packedCookie == null ? null : new PackedFormat(this,packedCookie);
+    }
+
+    /*
+     * @exception IllegalArgumentException When a cookie key of {@code type} has a non-ASCII character.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> ClassBinding<T> of(Class<T> type){
+        return (ClassBinding<T>) CACHE.get(type);
+    }
+
+    /*
+     * @return {@code true} only for the first caller, which reports the lookup as a cache miss.
+     */
+    boolean claimFresh(){
+        return fresh.get() && fresh.compareAndSet(true,false);
+    }
+
+    /*
+     * @return The attributes every Set-Cookie header of this class gets, with Expires computed from now if asked for.
+     * @exception IllegalArgumentException When {@link CookieAttributes#sameSite()} is not a SameSite value.
+     */
+    SetCookie attributes(){
+        SetCookie attributes = this.attributes;
+        CookieAttributes annotation = attributesAnnotation;
+        if(attributes == null){
+            SetCookie.Builder builder = SetCookie.builder("","");
+            if(annotation != null){
+                builder.attributes(annotation);
+            }
+            this.attributes = attributes = builder.build();
+        }
+        if(annotation != null && annotation.expires() && annotation.maxAge() != CookieAttributes.UNSET){
+            return attributes.toBuilder().expires(System.currentTimeMillis() + annotation.maxAge() * 1000).build();
+        }
+        return attributes;
+    }
+
+    /*
+     * @param index The index of the key in {@link #readNames}.
+     */
+    ReadProperty readProperty(int index){
+        return readProperties[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    T newInstance() throws CookieReflectException{
+        if(factory == null){
+            throw new CookieReflectException(
+                    "Can't find a constructor of " + type.getName() + " without parameter.",factoryError);
+        }
+        try {
+            return (T) (Object) factory.invokeExact();
+        } catch (Throwable e) {
+            throw constructionError(e);
+        }
+    }
+
+    /*
+     * Whether instances are made by the canonical constructor from the parsed values, see {@link #newInstance(Object[])}.
+     */
+    boolean isConstructorBound(){
+        return canonical != null;
+    }
+
+    /*
+     * @return A copy of the canonical constructor arguments to use for keys missing from a cookie.
+     */
+    Object[] defaultArguments(){
+        return defaultArguments.clone();
+    }
+
+    @SuppressWarnings("unchecked")
+    T newInstance(Object[] arguments) throws CookieReflectException{
+        try {
+            return (T) (Object) canonical.invokeExact(arguments);
+        } catch (Throwable e) {
+            throw constructionError(e);
+        }
+    }
+
+    private CookieReflectException constructionError(Throwable e){
+        if(e instanceof Error){
+            throw (Error) e;
+        }
+        return new CookieReflectException("Can't construct a instance of " + type.getName() + " with constructor.",e);
+    }
+
+    /*
+     * Set every field a key is parsed into back to the value it has in a new instance
+     * ({@code null}, 0 or {@code false} if there is no constructor without parameter to find it out with).
+     * Immutable defaults are kept from the first reset, other ones are taken from a new instance every time.
+     * Serialize methods are not called.
+     */
+    void reset(T target) throws CookieReflectException{
+        Object[] defaults = readDefaults;
+        if(defaults == null){
+            readDefaults = defaults = readDefaults();
+        }
+        T prototype = null;
+        for(int i = 0;i < readProperties.length;i ++){
+            FieldAccessor field = readProperties[i].field;
+            if(field != null){
+                try {
+                    Object value = defaults[i];
+                    if(value == FRESH){
+                        if(prototype == null){
+                            prototype = newInstance();
+                        }
+                        value = field.get(prototype);
+                    }
+                    field.set(target,value);
+                } catch (IllegalAccessException e) {
+                    throw new CookieReflectException("Can't reset field \"" + field.field.getName() + "\".",e);
+                }
+            }
+        }
+    }
+
+    private Object[] readDefaults() throws CookieReflectException{
+        T prototype = factory != null ? newInstance() : null;
+        Object[] defaults = new Object[readProperties.length];
+        for(int i = 0;i < readProperties.length;i ++){
+            FieldAccessor field = readProperties[i].field;
+            if(field == null){
+                continue;
+            }
+            try {
+                Object value = prototype != null ? field.get(prototype) : zeroOf(field.field.getType());
+                defaults[i] = isImmutable(value) ? value : FRESH;
+            } catch (IllegalAccessException e) {
+                throw new CookieReflectException("Can't access field \"" + field.field.getName() + "\".",e);
+            }
+        }
+        return defaults;
+    }
+
+    private static boolean isImmutable(Object value){
+        if(value == null || value instanceof String || value instanceof Enum){
+            return true;
+        }
+        Class<?> type = value.getClass();
+        return type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+                || type == Float.class || type == Double.class || type == Boolean.class || type == Character.class;
+    }
+
+    private static MethodHandle handleOf(Constructor<?> constructor) throws IllegalAccessException{
+        if(Modifier.isAbstract(constructor.getDeclaringClass().getModifiers())){
+            throw new IllegalAccessException(constructor.getDeclaringClass().getName() + " is abstract.");
+        }
+        try {
+            constructor.setAccessible(true);
+        } catch (RuntimeException e) {
+            throw new IllegalAccessException(e.getMessage());
+        }
+        return LOOKUP.unreflectConstructor(constructor);
+    }
+
+    /*
+     * @return The field of each component of a record, found by the component name, in the order of the canonical constructor;
+     * or {@code null} if {@code type} is not a record or has no component.
+     */
+    private static List<Field> recordFields(Class<?> type){
+        Class<?> superclass = type.getSuperclass();
+        if(GET_RECORD_COMPONENTS == null || superclass == null || !superclass.getName().equals("java.lang.Record")){
+            return null;
+        }
+        try {
+            Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+            List<Field> fields = new ArrayList<>(components.length);
+            for(Object component : components){
+                fields.add(type.getDeclaredField((String) COMPONENT_NAME.invoke(component)));
+            }
+            return fields.isEmpty() ? null : fields;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /*
+     * @return The default value of a field of {@code type}, boxed.
+     */
+    private static Object zeroOf(Class<?> type){
+        return type.isPrimitive() ? Array.get(Array.newInstance(type,1),0) : null;
+    }
+
+    /*
+     * Look for an adapter generated by the annotation processor.
+     * @return The adapter, or {@code null} if there is none and reflection should be used.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> CookieAdapter<T> findAdapter(Class<T> type){
+        String name = type.getName();
+        int packageEnd = name.lastIndexOf('.') + 1;
+        String adapterName = name.substring(0,packageEnd) + name.substring(packageEnd).replace('$','_') + "_CookieAdapter";
+        try {
+            Class<?> adapterClass = Class.forName(adapterName,true,type.getClassLoader());
+            if(!CookieAdapter.class.isAssignableFrom(adapterClass)){
+                return null;
+            }
+            return (CookieAdapter<T>) adapterClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /*
+     * @param components The fields of the record components, or {@code null} to bind the public fields.
+     */
+    private Map<String,ReadProperty> collectReadProperties(List<Field> components){
+        Map<String,ReadProperty> map = new LinkedHashMap<>();
+        if(components != null){
+            for(int i = 0;i < components.size();i ++){
+                Field field = components.get(i);
+                if(field.isAnnotationPresent(NoSerializeOrDeserialize.class)){
+                    continue;
+                }
+                String name = nameOf(field);
+                map.put(name,new ReadProperty(name,null,null,field.getType(),i));
+            }
+        }else{
+            for(Field field : type.getFields()){
+                if(field.isAnnotationPresent(NoSerializeOrDeserialize.class)){
+                    continue;
+                }
+                String name = nameOf(field);
+                map.put(name,new ReadProperty(name,FieldAccessor.of(field),null,field.getType(),-1));
+            }
+        }
+        if(!noMethod){
+            for(Method method : type.getDeclaredMethods()){
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                if(method.isAnnotationPresent(SerializeMethod.class)
+                        && parameterTypes.length == 1
+                        && parameterTypes[0].equals(String.class)
+                        && isDynamic(method)){
+                    String name = method.getAnnotation(SerializeMethod.class).value();
+                    map.put(name,new ReadProperty(name,null,MethodAccessor.of(method),String.class,-1));
+                }
+            }
+        }
+        return map;
+    }
+
+    /*
+     * Fields come in declaration order, then methods ordered by key.
+     * A key bound more than once keeps its first position but uses the last member, like putting them into a map would.
+     */
+    private List<WriteProperty> collectWriteProperties(){
+        Map<String,WriteProperty> map = new LinkedHashMap<>();
+        for(Field field : type.getDeclaredFields()){
+            if(field.isAnnotationPresent(NoSerializeOrDeserialize.class)){
+                continue;
+            }
+            String name = nameOf(field);
+            map.put(name,new WriteProperty(name,FieldAccessor.of(field),null));
+        }
+        if(!noMethod){
+            List<Method> methods = new ArrayList<>();
+            for(Method method : type.getDeclaredMethods()){
+                if(method.isAnnotationPresent(DeserializeMethod.class)
+                        && method.getParameterTypes().length == 0
+                        && isDynamic(method)
+                        && method.getReturnType().equals(String.class)){
+                    methods.add(method);
+                }
+            }
+            methods.sort(Comparator.comparing((Method method) -> method.getAnnotation(DeserializeMethod.class).value()));
+            for(Method method : methods){
+                String name = method.getAnnotation(DeserializeMethod.class).value();
+                map.put(name,new WriteProperty(name,null,MethodAccessor.of(method)));
+            }
+        }
+        return new ArrayList<>(map.values());
+    }
+
+    private static String nameOf(Field field){
+        SerializedName serializedName = field.getAnnotation(SerializedName.class);
+        return serializedName == null ? field.getName() : serializedName.value();
+    }
+
+    private static boolean isDynamic(Method method){
+        return !Modifier.isStatic(method.getModifiers());
+    }
+
+    /*
+     * The field types a cookie value can be parsed into.
+     * Boxed types share the constant of their primitive type.
+     */
+    enum ValueType{
+        STRING("string"),INT("integer"),LONG("long"),SHORT("short"),BYTE("byte"),
+        FLOAT("float"),DOUBLE("double"),BOOLEAN("boolean"),CHAR("char"),
+        ENUM("enum constant"),
+        /*
+         * Any other type, which needs a {@link ValueConverter} registered to the parser.
+         */
+        CUSTOM("value");
+
+        private final String description;
+
+        ValueType(String description){
+            this.description = description;
+        }
+
+        static ValueType of(Class<?> type){
+            if(type == String.class){
+                return STRING;
+            }
+            if(type == int.class || type == Integer.class){
+                return INT;
+            }
+            if(type == long.class || type == Long.class){
+                return LONG;
+            }
+            if(type == short.class || type == Short.class){
+                return SHORT;
+            }
+            if(type == byte.class || type == Byte.class){
+                return BYTE;
+            }
+            if(type == float.class || type == Float.class){
+                return FLOAT;
+            }
+            if(type == double.class || type == Double.class){
+                return DOUBLE;
+            }
+            if(type == boolean.class || type == Boolean.class){
+                return BOOLEAN;
+            }
+            if(type == char.class || type == Character.class){
+                return CHAR;
+            }
+            if(type.isEnum()){
+                return ENUM;
+            }
+            return CUSTOM;
+        }
+
+        CookieSyntaxException syntaxError(String key,CharSequence value){
+            return new CookieSyntaxException("Expected " + description + " but can't parse " + description
+                    + " for value \"" + value + "\" while parsing key \"" + key + "\".");
+        }
+    }
+
+    /*
+     * A cookie key that is parsed into a field, an argument of the canonical constructor or a {@link SerializeMethod}.
+     */
+    static final class ReadProperty{
+        final String name;
+        final FieldAccessor field;
+        final MethodAccessor method;
+        final Class<?> type;
+        final ValueType valueType;
+        /*
+         * The converter of an enum field, or {@code null}.
+         */
+        final ValueConverter<?> converter;
+        /*
+         * The index of the canonical constructor parameter, or -1.
+         */
+        final int argument;
+
+        ReadProperty(String name,FieldAccessor field,MethodAccessor method,Class<?> type,int argument){
+            this.name = name;
+            this.field = field;
+            this.method = method;
+            this.type = type;
+            this.valueType = ValueType.of(type);
+            this.converter = valueType == ValueType.ENUM ? EnumConverter.of(type) : null;
+            this.argument = argument;
+        }
+    }
+
+    /*
+     * A cookie key that is generated from either a field or a {@link DeserializeMethod}.
+     */
+    static final class WriteProperty{
+        final String name;
+        /*
+         * "name=", ready to be written.
+         */
+        final String prefix;
+        /*
+         * {@link #prefix} as US-ASCII bytes, for the writers into a {@link java.nio.ByteBuffer}.
+         */
+        final byte[] prefixBytes;
+        final FieldAccessor field;
+        final MethodAccessor method;
+        /*
+         * The type of a field, or {@code null} for a method.
+         */
+        final ValueType valueType;
+        /*
+         * Whether the field is primitive, so it is written without boxing.
+         */
+        final boolean primitive;
+
+        /*
+         * @exception IllegalArgumentException When {@code name} has a non-ASCII character,
+         * which {@link ByteBufferAppendable} could not write either.
+         */
+        WriteProperty(String name,FieldAccessor field,MethodAccessor method){
+            for(int i = 0;i < name.length();i ++){
+                if(!ByteBufferAppendable.isAscii(name.charAt(i))){
+                    throw new IllegalArgumentException("Cookie key \"" + name + "\" has the non-ASCII character '"
+                            + name.charAt(i) + "'.");
+                }
+            }
+            this.name = name;
+            this.prefix = name + CookieTokenizer.OPERATOR;
+            this.prefixBytes = prefix.getBytes(StandardCharsets.US_ASCII);
+            this.field = field;
+            this.method = method;
+            this.valueType = field == null ? null : ValueType.of(field.field.getType());
+            this.primitive = field != null && field.field.getType().isPrimitive();
+        }
+    }
+}
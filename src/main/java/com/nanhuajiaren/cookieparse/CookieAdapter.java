@@ -0,0 +1,109 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.annotations.GenerateAdapter;
+
+/*
+ * Reflection-free binding of a class, usually generated at compile time for classes marked with {@link GenerateAdapter}.
+ * A generated adapter is named after the class it binds, with '$' replaced by '_' and "_CookieAdapter" appended,
+ * and lives in the same package. {@link CookieParser} uses it instead of reflection when it can be found.
+ */
+public interface CookieAdapter<T> {
+    /*
+     * Create an empty instance to parse into.
+     */
+    T newInstance() throws CookieReflectException;
+
+    /*
+     * Parse a single key-value pair into {@code target}.
+     * @param value The already unescaped cookie value.
+     * @return {@code false} if the key is not bound by this adapter.
+     */
+    boolean read(T target,String key,String value) throws CookieSyntaxException;
+
+    /*
+     * Pass every non-null bound value of {@code source} to {@code sink}.
+     */
+    void write(T source,Sink sink);
+
+    /*
+     * Receives the key-value pairs generated by {@link #write}. The value is not escaped yet.
+     */
+    interface Sink{
+        void accept(String key,String value);
+    }
+
+    /*
+     * Helpers for generated adapters, failing with the same messages as reflection does.
+     */
+
+    static int parseInt(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseInt(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.INT.syntaxError(key,value);
+        }
+    }
+
+    static long parseLong(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseLong(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.LONG.syntaxError(key,value);
+        }
+    }
+
+    static short parseShort(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseShort(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.SHORT.syntaxError(key,value);
+        }
+    }
+
+    static byte parseByte(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseByte(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.BYTE.syntaxError(key,value);
+        }
+    }
+
+    static float parseFloat(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseFloat(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.FLOAT.syntaxError(key,value);
+        }
+    }
+
+    static double parseDouble(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseDouble(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.DOUBLE.syntaxError(key,value);
+        }
+    }
+
+    static boolean parseBoolean(String key,String value) throws CookieSyntaxException{
+        try {
+            return Numbers.parseBoolean(value,0,value.length());
+        } catch (NumberFormatException e){
+            throw ClassBinding.ValueType.BOOLEAN.syntaxError(key,value);
+        }
+    }
+
+    static char parseChar(String key,String value) throws CookieSyntaxException{
+        if(value.length() != 1){
+            throw ClassBinding.ValueType.CHAR.syntaxError(key,value);
+        }
+        return value.charAt(0);
+    }
+
+    static <E extends Enum<E>> E parseEnum(String key,String value,Class<E> type) throws CookieSyntaxException{
+        try {
+            return Enum.valueOf(type,value);
+        } catch (IllegalArgumentException e){
+            throw new CookieSyntaxException("No constant of " + type.getName() + " named \"" + value + "\".");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.nanhuajiaren.cookieparse;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/*
+ * Parses many cookies into the same class.
+ * The class binding is resolved once for the whole batch, and each worker keeps its own unescape buffer.
+ * A failing cookie only fails its own {@link ParseResult}, even if it fails with an unchecked exception.
+ */
+final class CookieBatch{
+    /*
+     * Each worker gets at least this many cookies, so splitting costs little compared to parsing.
+     */
+    private static final int MIN_CHUNK = 64;
+
+    private CookieBatch(){}
+
+    static <T> List<ParseResult<T>> parseAll(CookieParser parser,List<String> cookies,ClassBinding<T> binding,ForkJoinPool pool){
+        @SuppressWarnings("unchecked")
+        ParseResult<T>[] results = (ParseResult<T>[]) new ParseResult<?>[cookies.size()];
+        int chunk = Math.max(MIN_CHUNK,results.length / (pool.getParallelism() * 4));
+        pool.invoke(new ParseTask<>(parser,cookies,binding,results,0,results.length,chunk));
+        return Arrays.asList(results);
+    }
+
+    static <T> ParseResult<T> parseOne(CookieParser parser,String cookie,ClassBinding<T> binding,StringBuilder scratch,long index){
+        try {
+            if(cookie == null){
+                throw new CookieSyntaxException("No input to process.");
+            }
+            return new ParseResult<>(index,parser.bind(cookie,binding,scratch),null);
+        } catch (CookieSyntaxException | CookieReflectException e) {
+            return new ParseResult<>(index,null,e);
+        } catch (RuntimeException e) {
+            return new ParseResult<>(index,null,new CookieReflectException(
+                    "Unexpected exception while parsing into " + binding.type.getName() + ".",e));
+        }
+    }
+
+    private static final class ParseTask<T> extends RecursiveAction{
+        private final CookieParser parser;
+        private final List<String> cookies;
+        private final ClassBinding<T> binding;
+        private final ParseResult<T>[] results;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        ParseTask(CookieParser parser,List<String> cookies,ClassBinding<T> binding,ParseResult<T>[] results,int from,int to,int chunk){
+            this.parser = parser;
+            this.cookies = cookies;
+            this.binding = binding;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > chunk){
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask<>(parser,cookies,binding,results,from,middle,chunk),
+                        new ParseTask<>(parser,cookies,binding,results,middle,to,chunk));
+                return;
+            }
+            StringBuilder scratch = new StringBuilder();
+            for(int i = from;i < to;i ++){
+                results[i] = parseOne(parser,cookies.get(i),binding,scratch,i);
+            }
+        }
+    }
+
+    /*
+     * Wraps the spliterator of the cookies. Every split gets its own unescape buffer,
+     * and indexes are kept as long as the source knows the exact size of its splits.
+     */
+    static final class ParseSpliterator<T> implements Spliterator<ParseResult<T>>{
+        private final CookieParser parser;
+        private final Spliterator<String> source;
+        private final ClassBinding<T> binding;
+        private final StringBuilder scratch = new StringBuilder();
+        private long index;
+
+        ParseSpliterator(CookieParser parser,Spliterator<String> source,ClassBinding<T> binding,long index){
+            this.parser = parser;
+            this.source = source;
+            this.binding = binding;
+            this.index = source.hasCharacteristics(SUBSIZED) ? index : -1;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ParseResult<T>> action) {
+            return source.tryAdvance(cookie -> action.accept(parseOne(parser,cookie,binding,scratch,nextIndex())));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super ParseResult<T>> action) {
+            source.forEachRemaining(cookie -> action.accept(parseOne(parser,cookie,binding,scratch,nextIndex())));
+        }
+
+        private long nextIndex(){
+            return index < 0 ? -1 : index ++;
+        }
+
+        @Override
+        public Spliterator<ParseResult<T>> trySplit() {
+            Spliterator<String> prefix = source.trySplit();
+            if(prefix == null){
+                return null;
+            }
+            ParseSpliterator<T> split = new ParseSpliterator<>(parser,prefix,binding,index);
+            if(index >= 0){
+                index += prefix.getExactSizeIfKnown();
+            }
+            return split;
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & (ORDERED | SIZED | SUBSIZED) | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/*
+ * Observes what a {@link CookieParser} does, for metrics or tracing.
+ * Set one with {@link CookieParser#setListener(CookieListener)}. Without a listener the parser doesn't even read the clock.
+ * Methods are called on the parsing thread, possibly from many threads at once, so they should be fast and thread safe.
+ * {@link InMemoryCookieMetrics} is a ready to use implementation.
+ */
+public interface CookieListener {
+    /*
+     * A cookie was parsed.
+     * @param type The class parsed into, or {@code null} when parsing into a map.
+     * @param inputLength The length of the cookie in chars (or bytes when parsing bytes).
+     */
+    default void onParse(@Nullable Class<?> type,int inputLength,long nanos){}
+
+    /*
+     * A cookie was generated.
+     * @param type The class of the object, or {@code null} when generating from a map.
+     * @param outputLength The length of the cookie in chars (or bytes when writing into a buffer).
+     */
+    default void onWrite(@Nullable Class<?> type,int outputLength,long nanos){}
+
+    /*
+     * Parsing or generating failed, and {@code error} is about to be thrown.
+     * @param type The class parsed into or generated from, or {@code null} for maps.
+     */
+    default void onError(@Nullable Class<?> type,@NotNull Exception error){}
+
+    /*
+     * The binding of a class (its resolved fields, methods and adapter) was looked up.
+     * @param cached {@code false} the first time the binding is observed after being built.
+     */
+    default void onBindingLookup(@NotNull Class<?> type,boolean cached){}
+}
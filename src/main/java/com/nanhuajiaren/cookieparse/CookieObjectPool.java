@@ -0,0 +1,114 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+
+/*
+ * A bounded pool of instances for {@link CookieParser#fromCookie(String, CookieObjectPool)} to parse into,
+ * so the hottest handlers don't allocate a new object per request.
+ * An instance taken from the pool is reset before being filled, see {@link CookieParser#fromCookie(String, Object)}.
+ *
+ * The pool is split into stripes, each a small stack under its own lock, and a thread uses the stripe its id picks.
+ * A thread finding its stripe empty constructs a new instance, and an instance given back to a full stripe is dropped,
+ * so the pool never blocks for longer than a push or a pop and never grows past its capacity.
+ * One pool can be shared by any number of threads and parsers.
+ */
+public final class CookieObjectPool<T> {
+    final ClassBinding<T> binding;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /*
+     * @param capacity The maximum count of instances kept, rounded up to a multiple of the stripe count.
+     * @exception IllegalArgumentException When {@code capacity} is not positive, or {@code type} is made through its
+     * canonical constructor (such as a record) and can't be filled in place.
+     */
+    public CookieObjectPool(@NotNull Class<T> type,int capacity){
+        if(capacity <= 0 || capacity > 1 << 24){
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        this.binding = ClassBinding.of(type);
+        if(binding.isConstructorBound()){
+            throw new IllegalArgumentException(type.getName() + " is made through its canonical constructor and can't be pooled.");
+        }
+        int count = Integer.highestOneBit(Math.max(1,Math.min(capacity,Runtime.getRuntime().availableProcessors())));
+        this.stripes = new Stripe[count];
+        for(int i = 0;i < count;i ++){
+            stripes[i] = new Stripe((capacity + count - 1) / count);
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /*
+     * @return A pooled instance, or a new one if there is none. Its fields still hold the values of its last use.
+     * @exception CookieReflectException When a new instance can't be constructed.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public T acquire() throws CookieReflectException{
+        Object object = stripe().pop();
+        if(object != null){
+            return (T) object;
+        }
+        CookieAdapter<T> adapter = binding.adapter;
+        return adapter != null ? adapter.newInstance() : binding.newInstance();
+    }
+
+    /*
+     * Give an instance back, to be returned by a later {@link #acquire()}. It must not be used afterwards.
+     * @exception IllegalArgumentException When {@code object} is not exactly of the pooled class.
+     */
+    public void release(@NotNull T object){
+        if(object.getClass() != binding.type){
+            throw new IllegalArgumentException("Expected " + binding.type.getName() + " but got " + object.getClass().getName() + ".");
+        }
+        stripe().push(object);
+    }
+
+    /*
+     * @return The count of instances currently kept.
+     */
+    public int size(){
+        int size = 0;
+        for(Stripe stripe : stripes){
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripe(){
+        return stripes[NameTable.spread((int) Thread.currentThread().getId()) & stripeMask];
+    }
+
+    private static final class Stripe{
+        private final Object[] objects;
+        private int size;
+
+        Stripe(int capacity){
+            this.objects = new Object[capacity];
+        }
+
+        synchronized Object pop(){
+            if(size == 0){
+                return null;
+            }
+            Object object = objects[-- size];
+            objects[size] = null;
+            return object;
+        }
+
+        synchronized void push(Object object){
+            if(size < objects.length){
+                objects[size ++] = object;
+            }
+        }
+
+        synchronized int size(){
+            return size;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CookieObjectPool{" + binding.type.getName() + ", size=" + size() + "}";
+    }
+}
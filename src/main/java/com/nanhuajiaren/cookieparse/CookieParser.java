@@ -1,33 +1,73 @@
 package com.nanhuajiaren.cookieparse;
 
+import com.nanhuajiaren.cookieparse.annotations.CookieAttributes;
 import com.nanhuajiaren.cookieparse.annotations.DeserializeMethod;
-import com.nanhuajiaren.cookieparse.annotations.NoMethod;
+import com.nanhuajiaren.cookieparse.annotations.GenerateAdapter;
+import com.nanhuajiaren.cookieparse.annotations.PackedCookie;
 import com.nanhuajiaren.cookieparse.annotations.SerializeMethod;
 import com.nanhuajiaren.cookieparse.annotations.SerializedName;
 import com.nanhuajiaren.cookieparse.annotations.NoSerializeOrDeserialize;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /*
  * Parse or make a cookie string.
+ *
+ * A parser made by {@link Builder} is immutable and safe to share between any number of threads, as a singleton for example.
+ * A parser made by the constructor can still be configured through its setters, and is safe to share once that is done.
+ * Either way every call reads the configuration once, so it never sees half of a change.
+ * Calls keep their buffers to themselves instead of in {@link ThreadLocal}s, so they don't depend on which thread runs them.
  * @author nanhuajiaren
  */
 public class CookieParser{
-    private static final String SEPARATOR = ";";
-    private static final String OPERATOR = "=";
-    private TextEncoder encoder = new DefaultTextEncoder();
+    private volatile Settings settings;
+    private final boolean immutable;
 
-    public CookieParser(){}
+    public CookieParser(){
+        this.settings = new Builder().settings();
+        this.immutable = false;
+    }
+
+    private CookieParser(Settings settings){
+        this.settings = settings;
+        this.immutable = true;
+    }
+
+    /*
+     * Start configuring an immutable parser.
+     */
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    /*
+     * Start configuring an immutable parser with the current configuration of this one.
+     */
+    public Builder toBuilder(){
+        return new Builder(settings);
+    }
+
+    /*
+     * @return {@code true} if this parser was made by {@link Builder} and can't be changed.
+     */
+    public boolean isImmutable(){
+        return immutable;
+    }
 
     /*
      * Parse a cookie string.
@@ -43,6 +83,8 @@ public class CookieParser{
      * 4. The return value of the method will be ignored.
      * 5. A {@code @NoSerializeOrDeserialize} is recommended on the real field.
      *
+     * If a {@link CookieAdapter} was generated for {@code classOfT} (see {@link GenerateAdapter}), it is used instead of reflection.
+     *
      * @param cookie The cookie to parse (must contain at least on key-value pair).
      * @param classOfT The type to fit into.
      * @return A certain object,in type of given parameter {@code classOfT}.
@@ -50,151 +92,515 @@ public class CookieParser{
      * @exception CookieReflectException When a reflection exception is thrown.
      */
     public <T> T fromCookie(@NotNull String cookie,@NotNull Class<T> classOfT) throws CookieSyntaxException,CookieReflectException{
-        boolean noMethod = classOfT.isAnnotationPresent(NoMethod.class);
-        Constructor<T> constructor;
+        return bind(cookie,ClassBinding.of(classOfT),null);
+    }
+
+    /*
+     * Parse a cookie given as US-ASCII bytes, without decoding it into a String first.
+     * Works the same as {@link #fromCookie(String, Class)}.
+     */
+    public <T> T fromCookie(@NotNull byte[] cookie,int offset,int length,@NotNull Class<T> classOfT) throws CookieSyntaxException,CookieReflectException{
+        return bind(new AsciiSequence(cookie,offset,length),ClassBinding.of(classOfT),null);
+    }
+
+    /*
+     * Parse a cookie given as US-ASCII bytes, from the position to the limit of {@code cookie}.
+     * The position of the buffer is not changed. Both heap and direct buffers are supported.
+     * Works the same as {@link #fromCookie(String, Class)}.
+     */
+    public <T> T fromCookie(@NotNull ByteBuffer cookie,@NotNull Class<T> classOfT) throws CookieSyntaxException,CookieReflectException{
+        return bind(new AsciiSequence(cookie),ClassBinding.of(classOfT),null);
+    }
+
+    /*
+     * Parse a cookie into an existing instance, instead of constructing a new one.
+     * Every field a key is bound to is first set back to the value it has in a new instance,
+     * so a key missing from {@code cookie} never keeps the value of a previous parse.
+     * Serialize methods are only called for keys present in {@code cookie}, so they have to reset anything they set themselves.
+     * Works the same as {@link #fromCookie(String, Class)} otherwise.
+     * @return {@code target}.
+     * @exception CookieReflectException Also when the class is made through its canonical constructor, such as a record.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromCookie(@NotNull String cookie,@NotNull T target) throws CookieSyntaxException,CookieReflectException{
+        return bind(cookie,ClassBinding.of((Class<T>) target.getClass()),target,null);
+    }
+
+    /*
+     * Parse a cookie into an instance taken from {@code pool}, see {@link #fromCookie(String, Object)}.
+     * Give the instance back with {@link CookieObjectPool#release(Object)} once it is no longer used.
+     * If parsing fails, the instance is given back here.
+     */
+    public <T> T fromCookie(@NotNull String cookie,@NotNull CookieObjectPool<T> pool) throws CookieSyntaxException,CookieReflectException{
+        T target = pool.acquire();
         try {
-            constructor = classOfT.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new CookieReflectException(
-                    "Can't find a constructor of " + classOfT.getName() + " without parameter.",e);
+            return bind(cookie,pool.binding,target,null);
+        } catch (CookieSyntaxException | CookieReflectException | RuntimeException e) {
+            pool.release(target);
+            throw e;
+        }
+    }
+
+    /*
+     * @param scratch A buffer to unescape values in, or {@code null} to allocate one when needed.
+     */
+    <T> T bind(CharSequence cookie,ClassBinding<T> binding,StringBuilder scratch) throws CookieSyntaxException,CookieReflectException{
+        return bind(cookie,binding,null,scratch);
+    }
+
+    /*
+     * @param target The instance to fill, or {@code null} to make a new one.
+     */
+    private <T> T bind(CharSequence cookie,ClassBinding<T> binding,T target,StringBuilder scratch) throws CookieSyntaxException,CookieReflectException{
+        Settings settings = this.settings;
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            return bindPairs(settings,cookie,binding,target,scratch);
         }
-        constructor.setAccessible(true);
-        T obj;
+        listener.onBindingLookup(binding.type,!binding.claimFresh());
+        long start = System.nanoTime();
         try {
-            obj = constructor.newInstance();
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            throw new CookieReflectException("Can't construct a instance of " + classOfT.getName() + " with constructor.",e);
-        }
-        Map<String,String> map = fromCookie(cookie);
-        Iterator<String> iterator = map.keySet().iterator();
-        Field[] allFields = classOfT.getFields();
-        Map<String,Field> fieldMap = new HashMap<>();
-        for(Field field : allFields){
-            if(field.isAnnotationPresent(NoSerializeOrDeserialize.class)){
+            T obj = bindPairs(settings,cookie,binding,target,scratch);
+            listener.onParse(binding.type,cookie.length(),System.nanoTime() - start);
+            return obj;
+        } catch (CookieSyntaxException | CookieReflectException | RuntimeException e) {
+            listener.onError(binding.type,e);
+            throw e;
+        }
+    }
+
+    /*
+     * Any class but a record is constructed first and then filled.
+     * A record is made through its canonical constructor: the values are collected as its arguments,
+     * and serialize methods are called once the instance exists.
+     */
+    private static <T> T bindPairs(Settings settings,CharSequence cookie,ClassBinding<T> binding,T target,StringBuilder scratch) throws CookieSyntaxException,CookieReflectException{
+        TextEncoder encoder = settings.encoder;
+        CookieAdapter<T> adapter = null;
+        T obj = null;
+        Object[] arguments = null;
+        //Serialize methods and their values, one after the other.
+        List<Object> calls = null;
+        if(binding.isConstructorBound()){
+            if(target != null){
+                throw new CookieReflectException(
+                        binding.type.getName() + " is made through its canonical constructor and can't be filled in place.",null);
+            }
+            arguments = binding.defaultArguments();
+        }else if(target != null){
+            binding.reset(target);
+            obj = target;
+            adapter = binding.adapter;
+        }else{
+            adapter = binding.adapter;
+            obj = adapter != null ? adapter.newInstance() : binding.newInstance();
+        }
+        PackedFormat packed = binding.packed;
+        CookieTokenizer tokenizer = new CookieTokenizer(cookie,settings.lenient);
+        NameTable names = binding.readNames;
+        boolean[] seen = null;
+        int remaining = names.size();
+        boolean bound = false;
+        if(settings.selective){
+            if(remaining == 0 && packed == null){
+                return arguments == null ? obj : construct(binding,arguments,null);
+            }
+            seen = new boolean[remaining];
+        }
+        while(tokenizer.next()){
+            int keyStart = tokenizer.keyStart();
+            int keyEnd = tokenizer.keyEnd();
+            if(packed != null && packed.matches(cookie,keyStart,keyEnd)){
+                //The packed key wins over keys left from before the class was packed, so undo those.
+                if(bound){
+                    if(arguments != null){
+                        arguments = binding.defaultArguments();
+                        calls = null;
+                    }else if(target != null){
+                        binding.reset(target);
+                    }else{
+                        obj = adapter != null ? adapter.newInstance() : binding.newInstance();
+                    }
+                }
+                Object[] values = packed.read(settings.converters,cookie,tokenizer.valueStart(),tokenizer.valueEnd());
+                return bindPacked(binding,values,obj,arguments);
+            }
+            //A generated adapter never binds more keys than reflection does, so this filters for both.
+            int index = names.indexOf(cookie,keyStart,keyEnd);
+            if(index < 0){
                 continue;
             }
-            if(field.isAnnotationPresent(SerializedName.class)){
-                SerializedName serializedName = field.getAnnotation(SerializedName.class);
-                fieldMap.put(serializedName.value(),field);
-            }else{
-                fieldMap.put(field.getName(),field);
-            }
-        }
-        Map<String, Method> methodMap = new HashMap<>();
-        if(!noMethod) {
-            Method[] allMethods = classOfT.getDeclaredMethods();
-            for (Method method : allMethods) {
-                Class<?>[] parameterTypes = method.getParameterTypes();
-                if (method.isAnnotationPresent(SerializeMethod.class)
-                        && parameterTypes.length == 1
-                        && parameterTypes[0].equals(String.class)
-                        && isDynamic(method)) {
-                    SerializeMethod serializedName = method.getAnnotation(SerializeMethod.class);
-                    methodMap.put(serializedName.value(), method);
+            if(seen != null){
+                if(seen[index]){
+                    continue;
                 }
+                seen[index] = true;
+                remaining --;
             }
-        }
-        while(iterator.hasNext()){
-            String key = iterator.next();
-            String value = map.get(key);
-            Field field = fieldMap.get(key);
-            if((!noMethod) && methodMap.containsKey(key)){
-                try {
-                    methodMap.get(key).invoke(obj,value);
+            ClassBinding.ReadProperty property = binding.readProperty(index);
+            ValueConverter<?> converter = property.converter;
+            if(property.valueType == ClassBinding.ValueType.CUSTOM){
+                converter = settings.converters.get(property.type);
+                if(converter == null){
                     continue;
-                } catch (IllegalAccessException | InvocationTargetException e) {
-                    throw new CookieReflectException("Can't invoke init method " + methodMap.get(key).getName() + "() .",e);
                 }
             }
-            if(field != null){
-                field.setAccessible(true);
-                Class<?> fieldType = field.getType();
-                if(fieldType.equals(String.class)){
-                    try {
-                        field.set(obj,value);
-                    } catch (IllegalAccessException e) {
-                        throw new CookieReflectException(
-                                "Illegal access to field " + field.getName()
-                                        + " of Class " + classOfT.getName()
-                                        + " while parsing.",e);
-                    }
-                }else {
-                    String fieldTypeName = fieldType.getName();
-                    if(fieldType.equals(Integer.class) || fieldTypeName.equals("int")){
-                        try {
-                            field.set(obj,Integer.parseInt(value));
-                        } catch (IllegalAccessException e) {
-                            throw new CookieReflectException(
-                                    "Illegal access to field " + field.getName()
-                                            + " of Class " + classOfT.getName()
-                                            + " while parsing.",e);
-                        } catch (NumberFormatException e){
-                            throw new CookieSyntaxException(
-                                    "Expected integer but can't parse integer for value \"" + value
-                                            + "\" while parsing key \"" + key + "\".");
-                        }
-                    }
-                    else if(fieldType.equals(Float.class) || fieldTypeName.equals("float")){
-                        try {
-                            field.set(obj,Float.parseFloat(value));
-                        } catch (IllegalAccessException e) {
-                            throw new CookieReflectException(
-                                    "Illegal access to field " + field.getName()
-                                            + " of Class " + classOfT.getName()
-                                            + " while parsing.",e);
-                        } catch (NumberFormatException e){
-                            throw new CookieSyntaxException(
-                                    "Expected float but can't parse float for value \"" + value
-                                            + "\" while parsing key \"" + key + "\".");
-                        }
-                    }else if(fieldType.equals(Double.class) || fieldTypeName.equals("double")){
-                        try {
-                            field.set(obj,Double.parseDouble(value));
-                        } catch (IllegalAccessException e) {
-                            throw new CookieReflectException(
-                                    "Illegal access to field " + field.getName()
-                                            + " of Class " + classOfT.getName()
-                                            + " while parsing.",e);
-                        } catch (NumberFormatException e){
-                            throw new CookieSyntaxException(
-                                    "Expected double but can't parse double for value \"" + value
-                                            + "\" while parsing key \"" + key + "\".");
-                        }
+            int valueStart = tokenizer.valueStart();
+            int valueEnd = tokenizer.valueEnd();
+            if(adapter != null && property.valueType != ClassBinding.ValueType.CUSTOM){
+                bindWithAdapter(adapter,obj,property.name,decode(settings,cookie,valueStart,valueEnd,scratch));
+            }else if(property.method != null && arguments != null){
+                if(calls == null){
+                    calls = new ArrayList<>();
+                }
+                calls.add(property);
+                calls.add(decode(settings,cookie,valueStart,valueEnd,scratch));
+            }else if(property.method == null && property.valueType != ClassBinding.ValueType.STRING
+                    && !encoder.needsUnescape(cookie,valueStart,valueEnd)){
+                bindValue(arguments != null ? arguments : obj,property,converter,cookie,valueStart,valueEnd,null,valueStart);
+            }else{
+                String value = decode(settings,cookie,valueStart,valueEnd,scratch);
+                bindValue(arguments != null ? arguments : obj,property,converter,value,0,value.length(),value,valueStart);
+            }
+            bound = true;
+            if(seen != null && remaining == 0 && packed == null){
+                break;
+            }
+        }
+        return arguments == null ? obj : construct(binding,arguments,calls);
+    }
+
+    /*
+     * Put the values decoded from a {@link PackedCookie} into their properties, skipping {@code null}s.
+     * @param obj The instance, or {@code null} if {@code arguments} are given.
+     */
+    private static <T> T bindPacked(ClassBinding<T> binding,Object[] values,T obj,Object[] arguments) throws CookieSyntaxException,CookieReflectException{
+        List<Object> calls = null;
+        for(int i = 0;i < values.length;i ++){
+            Object value = values[i];
+            if(value == null){
+                continue;
+            }
+            ClassBinding.ReadProperty property = binding.readProperty(i);
+            if(property.argument >= 0){
+                arguments[property.argument] = value;
+            }else if(property.method != null){
+                if(arguments != null){
+                    if(calls == null){
+                        calls = new ArrayList<>();
                     }
+                    calls.add(property);
+                    calls.add(value);
+                }else{
+                    String text = (String) value;
+                    bindValue(obj,property,null,text,0,text.length(),text,-1);
+                }
+            }else{
+                try {
+                    property.field.set(obj,value);
+                } catch (IllegalAccessException e) {
+                    throw new CookieReflectException(
+                            "Illegal access to field " + property.field.field.getName()
+                                    + " of Class " + binding.type.getName()
+                                    + " while parsing.",e);
                 }
             }
         }
+        return arguments == null ? obj : construct(binding,arguments,calls);
+    }
+
+    /*
+     * Call the canonical constructor, then the serialize methods.
+     */
+    private static <T> T construct(ClassBinding<T> binding,Object[] arguments,List<Object> calls) throws CookieSyntaxException,CookieReflectException{
+        T obj = binding.newInstance(arguments);
+        if(calls != null){
+            for(int i = 0;i < calls.size();i += 2){
+                String value = (String) calls.get(i + 1);
+                bindValue(obj,(ClassBinding.ReadProperty) calls.get(i),null,value,0,value.length(),value,-1);
+            }
+        }
         return obj;
     }
 
+    private static <T> void bindWithAdapter(CookieAdapter<T> adapter,T obj,String key,String value) throws CookieSyntaxException,CookieReflectException{
+        try {
+            adapter.read(obj,key,value);
+        } catch (RuntimeException e) {
+            throw new CookieReflectException("Adapter " + adapter.getClass().getName() + " failed while parsing key \"" + key + "\".",e);
+        }
+    }
+
+    /*
+     * Parse {@code text[start,end)} into a property. Numbers and other built in types are parsed in place.
+     * @param obj The instance, or the canonical constructor arguments if the property is one.
+     * @param value The range as an unescaped String, or {@code null} if {@code text} is the raw cookie.
+     * Must not be {@code null} for methods and String fields.
+     * @param position Where the value starts in the cookie, or -1 if unknown.
+     */
+    private static void bindValue(Object obj,ClassBinding.ReadProperty property,ValueConverter<?> converter,
+                                  CharSequence text,int start,int end,String value,int position) throws CookieSyntaxException,CookieReflectException{
+        if(property.method != null){
+            try {
+                property.method.invokeSetter(obj,value);
+                return;
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new CookieReflectException("Can't invoke init method " + property.method.method.getName() + "() .",e);
+            }
+        }
+        FieldAccessor field = property.field;
+        try {
+            if(property.argument >= 0){
+                ((Object[]) obj)[property.argument] = parseArgument(property,converter,text,start,end,value,position);
+                return;
+            }
+            switch (property.valueType){
+                case STRING:
+                    field.set(obj,value);
+                    break;
+                case INT:
+                    field.setInt(obj,Numbers.parseInt(text,start,end));
+                    break;
+                case LONG:
+                    field.setLong(obj,Numbers.parseLong(text,start,end));
+                    break;
+                case SHORT:
+                    field.setShort(obj,Numbers.parseShort(text,start,end));
+                    break;
+                case BYTE:
+                    field.setByte(obj,Numbers.parseByte(text,start,end));
+                    break;
+                case FLOAT:
+                    field.setFloat(obj,Numbers.parseFloat(text,start,end));
+                    break;
+                case DOUBLE:
+                    field.setDouble(obj,Numbers.parseDouble(text,start,end));
+                    break;
+                case BOOLEAN:
+                    field.setBoolean(obj,Numbers.parseBoolean(text,start,end));
+                    break;
+                case CHAR:
+                    if(end - start != 1){
+                        throw property.valueType.syntaxError(property.name,text.subSequence(start,end));
+                    }
+                    field.setChar(obj,text.charAt(start));
+                    break;
+                case ENUM:
+                case CUSTOM:
+                    field.set(obj,convert(property,converter,text,start,end,position));
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw property.valueType.syntaxError(property.name,text.subSequence(start,end));
+        } catch (IllegalAccessException e) {
+            throw new CookieReflectException(
+                    "Illegal access to field " + field.field.getName()
+                            + " of Class " + obj.getClass().getName()
+                            + " while parsing.",e);
+        }
+    }
+
+    /*
+     * Parse {@code text[start,end)} as the value of a canonical constructor parameter, boxed.
+     * @exception NumberFormatException When a number can't be parsed.
+     */
+    private static Object parseArgument(ClassBinding.ReadProperty property,ValueConverter<?> converter,
+                                        CharSequence text,int start,int end,String value,int position) throws CookieSyntaxException{
+        switch (property.valueType){
+            case STRING:
+                return value;
+            case INT:
+                return Numbers.parseInt(text,start,end);
+            case LONG:
+                return Numbers.parseLong(text,start,end);
+            case SHORT:
+                return Numbers.parseShort(text,start,end);
+            case BYTE:
+                return Numbers.parseByte(text,start,end);
+            case FLOAT:
+                return Numbers.parseFloat(text,start,end);
+            case DOUBLE:
+                return Numbers.parseDouble(text,start,end);
+            case BOOLEAN:
+                return Numbers.parseBoolean(text,start,end);
+            case CHAR:
+                if(end - start != 1){
+                    throw property.valueType.syntaxError(property.name,text.subSequence(start,end));
+                }
+                return text.charAt(start);
+            default:
+                return convert(property,converter,text,start,end,position);
+        }
+    }
+
+    /*
+     * Run a {@link ValueConverter}, turning anything it throws unchecked into a {@link CookieSyntaxException}.
+     * @param position Where the value starts in the cookie, or -1 if unknown.
+     */
+    private static Object convert(ClassBinding.ReadProperty property,ValueConverter<?> converter,
+                                  CharSequence text,int start,int end,int position) throws CookieSyntaxException{
+        try {
+            return converter.parse(text,start,end);
+        } catch (RuntimeException e) {
+            String message = "Can't convert value \"" + text.subSequence(start,end) + "\" to " + property.type.getName()
+                    + " while parsing key \"" + property.name + "\".";
+            CookieSyntaxException error = position < 0 ? new CookieSyntaxException(message) : new CookieSyntaxException(message,position);
+            error.initCause(e);
+            throw error;
+        }
+    }
+
+    /*
+     * Parse many cookies into the same class, in parallel on the common {@link ForkJoinPool}.
+     * See {@link #parseAll(List, Class, ForkJoinPool)}.
+     */
+    public <T> List<ParseResult<T>> parseAll(@NotNull List<String> cookies,@NotNull Class<T> classOfT){
+        return parseAll(cookies,classOfT,ForkJoinPool.commonPool());
+    }
+
+    /*
+     * Parse many cookies into the same class, in parallel on {@code pool}.
+     * Works the same as {@link #fromCookie(String, Class)} for each cookie, but exceptions do not stop the batch:
+     * every cookie gets a {@link ParseResult} holding either the object or the exception.
+     * A {@code null} cookie fails with a {@link CookieSyntaxException}.
+     * @param cookies The cookies. The list should support fast random access and must not be changed during the call.
+     * @return The results, in the order of {@code cookies}.
+     */
+    public <T> List<ParseResult<T>> parseAll(@NotNull List<String> cookies,@NotNull Class<T> classOfT,@NotNull ForkJoinPool pool){
+        return CookieBatch.parseAll(this,cookies,ClassBinding.of(classOfT),pool);
+    }
+
+    /*
+     * Lazily parse a stream of cookies into the same class.
+     * Like {@link #parseAll(List, Class)}, every cookie gets a {@link ParseResult}.
+     * The returned stream is parallel if {@code cookies} is, and each split of it keeps its own buffers.
+     */
+    public <T> Stream<ParseResult<T>> parseAll(@NotNull Stream<String> cookies,@NotNull Class<T> classOfT){
+        CookieBatch.ParseSpliterator<T> spliterator =
+                new CookieBatch.ParseSpliterator<>(this,cookies.spliterator(),ClassBinding.of(classOfT),0);
+        return StreamSupport.stream(spliterator,cookies.isParallel()).onClose(cookies::close);
+    }
+
     /*
      * Parse a cookie string.
+     * Pairs are split on the first '=', so values may contain '='. Whitespace around keys and values is ignored.
      * @param cookie The cookie string. Empty string will lead to an exception.
      * @return A {@Link HashMap}. Note that the key in this map is not parsed, while the cookie value will be parsed.
-     * @exception When {@code cookie} is null, empty or contains invalid syntax.
+     * @exception CookieSyntaxException When {@code cookie} is empty or a pair contains no '='. The position is reported by {@link CookieSyntaxException#getPosition()}.
      */
     public Map<String,String> fromCookie(@NotNull String cookie) throws CookieSyntaxException{
-        if(cookie.trim().equals("")){
-            throw new CookieSyntaxException("No input to process.");
+        return parse(cookie);
+    }
+
+    /*
+     * Parse a cookie given as US-ASCII bytes, without decoding it into a String first.
+     * Only the keys and values put into the result are turned into Strings.
+     * Works the same as {@link #fromCookie(String)}.
+     */
+    public Map<String,String> fromCookie(@NotNull byte[] cookie,int offset,int length) throws CookieSyntaxException{
+        return parse(new AsciiSequence(cookie,offset,length));
+    }
+
+    /*
+     * Parse a cookie given as US-ASCII bytes, from the position to the limit of {@code cookie}.
+     * The position of the buffer is not changed. Both heap and direct buffers are supported.
+     * Works the same as {@link #fromCookie(String)}.
+     */
+    public Map<String,String> fromCookie(@NotNull ByteBuffer cookie) throws CookieSyntaxException{
+        return parse(new AsciiSequence(cookie));
+    }
+
+    private Map<String,String> parse(CharSequence cookie) throws CookieSyntaxException{
+        Settings settings = this.settings;
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            return parsePairs(settings,cookie);
+        }
+        long start = System.nanoTime();
+        try {
+            Map<String,String> map = parsePairs(settings,cookie);
+            listener.onParse(null,cookie.length(),System.nanoTime() - start);
+            return map;
+        } catch (CookieSyntaxException | RuntimeException e) {
+            listener.onError(null,e);
+            throw e;
         }
+    }
+
+    private static Map<String,String> parsePairs(Settings settings,CharSequence cookie) throws CookieSyntaxException{
+        CookieTokenizer tokenizer = new CookieTokenizer(cookie,settings.lenient);
         Map<String,String> returnValue = new HashMap<>();
-        String[] pairs = cookie.split(SEPARATOR);
-        for(int i = 0;i < pairs.length;i ++){
-            String pair = pairs[i].trim();
-            if(pair.equals("")){
-                continue;
-            }
-            String[] p = pair.split(OPERATOR);
-            if(p.length != 2){
-                throw new CookieSyntaxException(
-                        "Too " + (p.length > 2 ? "many" : "less")
-                                + " '" + OPERATOR + "' in key-value pair " + i +".");
-            }
-            returnValue.put(p[0],encoder.unescape(p[1]));
+        while(tokenizer.next()){
+            returnValue.put(tokenizer.key(),decode(settings,cookie,tokenizer.valueStart(),tokenizer.valueEnd(),null));
         }
         return returnValue;
     }
 
+    /*
+     * Make a lazy view of a cookie string.
+     * The cookie is scanned (and checked for syntax errors) at once, but values are only unescaped when they are read.
+     * Prefer this over {@link #fromCookie(String)} when only a few of many keys are needed.
+     * @param cookie The cookie. It is not copied, so it should not be changed while the view is used.
+     * @exception CookieSyntaxException When {@code cookie} is empty or a pair contains no '='.
+     */
+    public CookieView view(@NotNull CharSequence cookie) throws CookieSyntaxException{
+        return newView(cookie);
+    }
+
+    /*
+     * Make a lazy view of a cookie given as US-ASCII bytes. See {@link #view(CharSequence)}.
+     */
+    public CookieView view(@NotNull byte[] cookie,int offset,int length) throws CookieSyntaxException{
+        return newView(new AsciiSequence(cookie,offset,length));
+    }
+
+    /*
+     * Make a lazy view of a cookie given as US-ASCII bytes, from the position to the limit of {@code cookie}.
+     * See {@link #view(CharSequence)}.
+     */
+    public CookieView view(@NotNull ByteBuffer cookie) throws CookieSyntaxException{
+        return newView(new AsciiSequence(cookie));
+    }
+
+    private CookieView newView(CharSequence cookie) throws CookieSyntaxException{
+        Settings settings = this.settings;
+        return new CookieView(cookie,settings.encoder,settings.valueCache,settings.lenient);
+    }
+
+    /*
+     * Unescape a range of a cookie, through the value cache if there is one.
+     */
+    private static String decode(Settings settings,CharSequence cookie,int start,int end,StringBuilder scratch){
+        DecodedValueCache cache = settings.valueCache;
+        if(cache != null){
+            return cache.get(settings.encoder,cookie,start,end,scratch);
+        }
+        return unescape(settings.encoder,cookie,start,end,scratch);
+    }
+
+    /*
+     * Unescape a range of a cookie through the range methods of the encoder. Only the result is turned into a String.
+     * @param scratch A buffer to decode in, or {@code null} to allocate one when needed.
+     */
+    static String unescape(TextEncoder encoder,CharSequence cookie,int start,int end,StringBuilder scratch){
+        if(!encoder.needsUnescape(cookie,start,end)){
+            return cookie.subSequence(start,end).toString();
+        }
+        StringBuilder sb;
+        if(scratch == null){
+            sb = new StringBuilder(end - start);
+        }else{
+            sb = scratch;
+            sb.setLength(0);
+        }
+        try {
+            encoder.unescape(cookie,start,end,sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
     /*
      * Transform a key map into a cookie string.
      * @param cookieMap A key-value map of the cookie. Empty map or null will turn into an empty string.
@@ -204,16 +610,26 @@ public class CookieParser{
         if(cookieMap == null){
             return "";
         }
-        StringBuilder sb = new StringBuilder();
+        Settings settings = this.settings;
+        CookieListener listener = settings.listener;
+        long start = listener == null ? 0 : System.nanoTime();
+        StringBuilder sb = new StringBuilder(cookieMap.size() * 32);
         Iterator<Map.Entry<String,String>> iterator = cookieMap.entrySet().iterator();
-        while (iterator.hasNext()){
-            Map.Entry<String,String> entry = iterator.next();
-            sb.append(entry.getKey());
-            sb.append('=');
-            sb.append(encoder.escape(entry.getValue()));
-            if(iterator.hasNext()){
-                sb.append("; ");
+        try {
+            while (iterator.hasNext()){
+                Map.Entry<String,String> entry = iterator.next();
+                sb.append(entry.getKey());
+                sb.append('=');
+                escape(settings.encoder,entry.getValue(),sb);
+                if(iterator.hasNext()){
+                    sb.append("; ");
+                }
             }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if(listener != null){
+            listener.onWrite(null,sb.length(),System.nanoTime() - start);
         }
         return sb.toString();
     }
@@ -239,143 +655,1024 @@ public class CookieParser{
         if(object == null){
             return "";
         }
-        Map<String,String> map = new HashMap<>();
-        Field[] allFields = object.getClass().getDeclaredFields();
-        for(Field field : allFields){
-            if(field.isAnnotationPresent(NoSerializeOrDeserialize.class)){
-                continue;
-            }
-            field.setAccessible(true);
-            String key;
-            if(field.isAnnotationPresent(SerializedName.class)){
-                key = field.getAnnotation(SerializedName.class).value();
-            }else{
-                key = field.getName();
-            }
-            String value;
-            try {
-                Object o = field.get(object);
-                if(o == null){
-                    continue;
-                }
-                value = o.toString();
-            } catch (IllegalAccessException e) {
-                throw new CookieReflectException(
-                        "Can't access field \"" + field.getName() + "\" while deserializing.",e);
-            }
-            map.put(key,value);
-        }
-        if(!object.getClass().isAnnotationPresent(NoMethod.class)){
-            Method[] allMethods = object.getClass().getDeclaredMethods();
-            for(Method method : allMethods){
-                Class<?>[] parameterTypes = method.getParameterTypes();
-                if(method.isAnnotationPresent(DeserializeMethod.class)
-                        && parameterTypes.length == 0
-                        && isDynamic(method)
-                        && method.getReturnType().equals(String.class)){
-                    method.setAccessible(true);
-                    String key = method.getAnnotation(DeserializeMethod.class).value();
-                    String value;
-                    try {
-                        value = (String) method.invoke(object);
-                    } catch (IllegalAccessException | InvocationTargetException e) {
-                        throw new CookieReflectException("Can't invoke deserialize method.",e);
-                    }
-                    if(value == null){
-                        continue;
-                    }
-                    map.put(key,value);
-                }
-            }
+        ClassBinding<?> binding = ClassBinding.of(object.getClass());
+        StringBuilder sb = new StringBuilder(binding.lengthHint);
+        try {
+            writeObject(object,binding,sb,null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        if(sb.length() > binding.lengthHint){
+            binding.lengthHint = sb.length();
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Write the cookie of an object straight into {@code out}, without building the String of {@link #toCookie(Object)}.
+     * Pairs are written in the order the fields are declared, then the deserialize methods ordered by key.
+     * Primitive fields are written without boxing and values are escaped straight into {@code out}.
+     * @param object The object to deserialize. Nothing is written if it is {@code null}.
+     * @exception CookieReflectException When an exception is thrown during reflect operation.
+     * @exception IOException When {@code out} throws it.
+     */
+    public void writeCookie(Object object,@NotNull Appendable out) throws CookieReflectException,IOException{
+        if(object != null){
+            writeObject(object,ClassBinding.of(object.getClass()),out,null);
         }
-        return toCookie(map);
     }
 
-    private static boolean isDynamic(Method method){
-        return !Modifier.isStatic(method.getModifiers());
+    /*
+     * Write the cookie of an object as US-ASCII bytes into {@code out}, starting at its position.
+     * Works the same as {@link #writeCookie(Object, Appendable)}.
+     * @exception BufferOverflowException When there is not enough space left in {@code out}.
+     * @exception IllegalArgumentException When a value contains a non-ASCII character after escaping.
+     */
+    public void writeCookie(Object object,@NotNull ByteBuffer out) throws CookieReflectException{
+        if(object == null){
+            return;
+        }
+        ByteBufferAppendable appendable = new ByteBufferAppendable(out);
+        try {
+            writeObject(object,ClassBinding.of(object.getClass()),appendable,appendable);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /*
-     * Set the {@link TextEncoder} of current instance.
-     * @see {@link TextEncoder}
-     * @return Current instance (for link up convenience).
+     * Report {@link #write} to the listener, if any.
      */
-    public CookieParser setEncoder(@NotNull TextEncoder encoder) {
-        this.encoder = encoder;
-        return this;
+    private void writeObject(Object object,ClassBinding<?> binding,Appendable out,ByteBufferAppendable bytes) throws CookieReflectException,IOException{
+        Settings settings = this.settings;
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            write(settings,object,binding,out,bytes);
+            return;
+        }
+        listener.onBindingLookup(binding.type,!binding.claimFresh());
+        long start = System.nanoTime();
+        CountingAppendable counting = bytes == null ? new CountingAppendable(out) : null;
+        int startPosition = bytes == null ? 0 : bytes.position();
+        try {
+            write(settings,object,binding,counting != null ? counting : out,bytes);
+        } catch (CookieReflectException | IOException | RuntimeException e) {
+            listener.onError(binding.type,e);
+            throw e;
+        }
+        int length = counting != null ? counting.count : bytes.position() - startPosition;
+        listener.onWrite(binding.type,length,System.nanoTime() - start);
     }
 
     /*
-     * Set the current instance not to process character escaping.
-     * @return Current instance (for link up convenience).
+     * @param bytes The same as {@code out} if writing into a {@link ByteBuffer}, so the key prefixes can be copied as bytes.
      */
-    public CookieParser dontProcessEncoding(){
-        this.encoder = new NoProcess();
-        return this;
+    private static void write(Settings settings,Object object,ClassBinding<?> binding,Appendable out,ByteBufferAppendable bytes) throws CookieReflectException,IOException{
+        if(binding.packed != null){
+            binding.packed.write(settings.converters,object,out);
+            return;
+        }
+        if(usesAdapter(settings,binding)){
+            writeWithAdapter(settings.encoder,binding.adapter,object,out);
+            return;
+        }
+        boolean first = true;
+        for(ClassBinding.WriteProperty property : binding.writeProperties){
+            first &= !writeProperty(settings,object,property,first,out,bytes);
+        }
     }
 
     /*
-     * The default {@link TextEncoder} the parser use.
-     * Escape policy: Will escape following character: (space) [ ] ( ) = , \ " ? @ : ;
+     * Whether to write through the generated adapter: only when converters the adapter knows nothing about don't matter.
      */
-    public static class DefaultTextEncoder implements TextEncoder{
+    private static boolean usesAdapter(Settings settings,ClassBinding<?> binding){
+        return binding.adapter != null && !(binding.customWrites && !settings.converters.isEmpty());
+    }
 
-        @Override
-        public String escape(@NotNull String original) {
-            StringBuilder sb = new StringBuilder();
-            for(char c : original.toCharArray()){
-                if(needToEncode(c)){
-                    sb.append("%");
-                    if(c > 127) {
-                        sb.append("u");
-                    }
-                    sb.append(Integer.toHexString(c));
-                }else{
-                    sb.append(c);
-                }
+    /*
+     * Write one pair of {@code object}, unless its value is {@code null}.
+     * @return Whether anything was written.
+     */
+    private static boolean writeProperty(Settings settings,Object object,ClassBinding.WriteProperty property,boolean first,Appendable out,ByteBufferAppendable bytes) throws CookieReflectException,IOException{
+        TextEncoder encoder = settings.encoder;
+        if(property.method != null){
+            String value;
+            try {
+                value = property.method.invokeGetter(object);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new CookieReflectException("Can't invoke deserialize method.",e);
             }
-            return sb.toString();
+            if(value == null){
+                return false;
+            }
+            writePrefix(property,first,out,bytes);
+            escape(encoder,value,out);
+            return true;
         }
-
-        private static boolean needToEncode(char c){
-            if(c > 127){
+        FieldAccessor field = property.field;
+        try {
+            if(property.primitive){
+                writePrefix(property,first,out,bytes);
+                switch (property.valueType){
+                    case INT:
+                        Numbers.append(out,field.getInt(object));
+                        break;
+                    case LONG:
+                        Numbers.append(out,field.getLong(object));
+                        break;
+                    case SHORT:
+                        Numbers.append(out,field.getShort(object));
+                        break;
+                    case BYTE:
+                        Numbers.append(out,field.getByte(object));
+                        break;
+                    case FLOAT:
+                        Numbers.append(out,field.getFloat(object));
+                        break;
+                    case DOUBLE:
+                        Numbers.append(out,field.getDouble(object));
+                        break;
+                    case BOOLEAN:
+                        out.append(field.getBoolean(object) ? "true" : "false");
+                        break;
+                    case CHAR:
+                        escape(encoder,String.valueOf(field.getChar(object)),out);
+                        break;
+                }
                 return true;
             }
-            return " []()=,\"/?@:;".indexOf(c) != -1;
+            Object o = field.get(object);
+            if(o == null){
+                return false;
+            }
+            writePrefix(property,first,out,bytes);
+            escape(encoder,format(settings.converters,property,o),out);
+            return true;
+        } catch (IllegalAccessException e) {
+            throw new CookieReflectException(
+                    "Can't access field \"" + field.field.getName() + "\" while deserializing.",e);
         }
+    }
 
-        @Override
-        public String unescape(@NotNull String encoded) {
-            return parseAscii(parseUnicode(encoded));
+    /*
+     * Turn a non-null field value into its cookie value: by name for enums, by converter if one is registered,
+     * and by {@link Object#toString()} otherwise.
+     */
+    @SuppressWarnings({"unchecked","rawtypes"})
+    static String format(Map<Class<?>,ValueConverter<?>> converters,ClassBinding.WriteProperty property,Object value){
+        if(property.valueType == ClassBinding.ValueType.ENUM){
+            return ((Enum<?>) value).name();
         }
-
-        private static String parseUnicode(String encoded){
-            Pattern pattern = Pattern.compile("%u([0-9a-fA-F]{4})");
-            return parsePattern(encoded, pattern);
+        if(property.valueType == ClassBinding.ValueType.CUSTOM){
+            ValueConverter converter = converters.get(property.field.field.getType());
+            if(converter != null){
+                return converter.format(value);
+            }
         }
+        return value.toString();
+    }
 
-        private static String parseAscii(String encoded){
-            Pattern pattern = Pattern.compile("%([0-9a-fA-F]{2})");
-            return parsePattern(encoded, pattern);
+    /*
+     * Write the separator if needed, and "key=".
+     */
+    private static void writePrefix(ClassBinding.WriteProperty property,boolean first,Appendable out,ByteBufferAppendable bytes) throws IOException{
+        if(!first){
+            out.append("; ");
         }
-
-        private static String parsePattern(String encoded, Pattern pattern) {
-            Matcher matcher = pattern.matcher(encoded);
-            StringBuilder sb = new StringBuilder(encoded.length());
-            while(matcher.find()){
-                String data = matcher.group(1);
-                char ch = (char) Integer.parseInt(data,16);
-                String replace = String.valueOf(ch);
-                matcher.appendReplacement(sb,replace);
-            }
-            matcher.appendTail(sb);
-            return sb.toString();
+        if(bytes != null){
+            bytes.write(property.prefixBytes);
+        }else{
+            out.append(property.prefix);
         }
     }
 
-    private static class NoProcess implements TextEncoder{
+    private static <T> void writeWithAdapter(TextEncoder encoder,CookieAdapter<T> adapter,Object object,Appendable out) throws CookieReflectException,IOException{
+        boolean[] first = {true};
+        writeWithAdapter(adapter,object,(key,value) -> {
+            if(!first[0]){
+                out.append("; ");
+            }
+            first[0] = false;
+            out.append(key).append(CookieTokenizer.OPERATOR);
+            escape(encoder,value,out);
+        });
+    }
 
-        @Override
+    /*
+     * Pass every pair of the adapter to {@code pairs}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void writeWithAdapter(CookieAdapter<T> adapter,Object object,PairWriter pairs) throws CookieReflectException,IOException{
+        try {
+            adapter.write((T) object,(key,value) -> {
+                try {
+                    pairs.write(key,value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new CookieReflectException("Adapter " + adapter.getClass().getName() + " failed while deserializing.",e);
+        }
+    }
+
+    private interface PairWriter{
+        void write(String key,String value) throws IOException;
+    }
+
+    /*
+     * Parse a Set-Cookie header value, such as "id=a3fWa; Expires=Wed, 21 Oct 2015 07:28:00 GMT; Secure".
+     * Follows RFC 6265 section 5.2: attribute names ignore case, unknown attributes and invalid values are ignored.
+     * Expires is read as any of the date formats of RFC 6265, Max-Age as seconds.
+     * @param header The header value, without "Set-Cookie:".
+     * @return The cookie, with its value unescaped by the encoder.
+     * @exception CookieSyntaxException When the header has no name-value pair.
+     */
+    public SetCookie parseSetCookie(@NotNull String header) throws CookieSyntaxException{
+        Settings settings = this.settings;
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            return SetCookie.parse(header,settings.encoder);
+        }
+        long start = System.nanoTime();
+        try {
+            SetCookie cookie = SetCookie.parse(header,settings.encoder);
+            listener.onParse(SetCookie.class,header.length(),System.nanoTime() - start);
+            return cookie;
+        } catch (CookieSyntaxException | RuntimeException e) {
+            listener.onError(SetCookie.class,e);
+            throw e;
+        }
+    }
+
+    /*
+     * Make a Set-Cookie header value. The value is escaped by the encoder.
+     * Expires is written as an RFC 1123 date, which is only formatted once per second.
+     */
+    public String toSetCookie(@NotNull SetCookie cookie){
+        StringBuilder sb = new StringBuilder(64);
+        try {
+            writeSetCookie(cookie,sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Write a Set-Cookie header value straight into {@code out}. See {@link #toSetCookie(SetCookie)}.
+     */
+    public void writeSetCookie(@NotNull SetCookie cookie,@NotNull Appendable out) throws IOException{
+        Settings settings = this.settings;
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            writeSetCookie(settings,cookie,out);
+            return;
+        }
+        long start = System.nanoTime();
+        CountingAppendable counting = new CountingAppendable(out);
+        try {
+            writeSetCookie(settings,cookie,counting);
+        } catch (IOException | RuntimeException e) {
+            listener.onError(SetCookie.class,e);
+            throw e;
+        }
+        listener.onWrite(SetCookie.class,counting.count,System.nanoTime() - start);
+    }
+
+    private static void writeSetCookie(Settings settings,SetCookie cookie,Appendable out) throws IOException{
+        out.append(cookie.getName()).append(CookieTokenizer.OPERATOR);
+        escape(settings.encoder,cookie.getValue(),out);
+        cookie.writeAttributes(out);
+    }
+
+    /*
+     * Make one Set-Cookie header value for every key {@link #toCookie(Object)} would write, in the same order.
+     * Every header gets the attributes of the {@link CookieAttributes} annotation of the class, if it has one.
+     * @param object The object to deserialize. Can be {@code null}, and will get an empty list in this case.
+     * @exception CookieReflectException When an exception is thrown during reflect operation.
+     * @exception IllegalArgumentException When {@link CookieAttributes#sameSite()} is not a SameSite value.
+     */
+    public List<String> toSetCookies(Object object) throws CookieReflectException{
+        if(object == null){
+            return Collections.emptyList();
+        }
+        Settings settings = this.settings;
+        ClassBinding<?> binding = ClassBinding.of(object.getClass());
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            return setCookies(settings,object,binding);
+        }
+        listener.onBindingLookup(binding.type,!binding.claimFresh());
+        long start = System.nanoTime();
+        List<String> headers;
+        try {
+            headers = setCookies(settings,object,binding);
+        } catch (CookieReflectException | RuntimeException e) {
+            listener.onError(binding.type,e);
+            throw e;
+        }
+        int length = 0;
+        for(String header : headers){
+            length += header.length();
+        }
+        listener.onWrite(binding.type,length,System.nanoTime() - start);
+        return headers;
+    }
+
+    private static List<String> setCookies(Settings settings,Object object,ClassBinding<?> binding) throws CookieReflectException{
+        SetCookie attributes = binding.attributes();
+        List<String> headers = new ArrayList<>(binding.writeProperties.size());
+        try {
+            if(binding.packed != null){
+                StringBuilder sb = new StringBuilder(64);
+                binding.packed.write(settings.converters,object,sb);
+                attributes.writeAttributes(sb);
+                headers.add(sb.toString());
+                return headers;
+            }
+            if(usesAdapter(settings,binding)){
+                StringBuilder sb = new StringBuilder(64);
+                writeWithAdapter(binding.adapter,object,(key,value) -> {
+                    sb.setLength(0);
+                    sb.append(key).append(CookieTokenizer.OPERATOR);
+                    escape(settings.encoder,value,sb);
+                    attributes.writeAttributes(sb);
+                    headers.add(sb.toString());
+                });
+                return headers;
+            }
+            StringBuilder sb = new StringBuilder(64);
+            for(ClassBinding.WriteProperty property : binding.writeProperties){
+                sb.setLength(0);
+                if(writeProperty(settings,object,property,true,sb,null)){
+                    attributes.writeAttributes(sb);
+                    headers.add(sb.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return headers;
+    }
+
+    /*
+     * Parse a cookie like {@link #fromCookie(String, Class)}, and remember what the object would be written as right after,
+     * so only the keys changed afterwards are written by {@link #toChangedCookie(TrackedCookie)} and {@link #toChangedSetCookies(TrackedCookie)}.
+     * Tracking costs one extra {@link #toCookie(Object)} of the object.
+     */
+    public <T> TrackedCookie<T> fromCookieTracked(@NotNull String cookie,@NotNull Class<T> classOfT) throws CookieSyntaxException,CookieReflectException{
+        ClassBinding<T> binding = ClassBinding.of(classOfT);
+        return track(settings,bind(cookie,binding,null),binding);
+    }
+
+    /*
+     * Remember what {@code object} would be written as now, to write only the keys changed afterwards.
+     * Use it to track an object again once its changes have been sent.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> TrackedCookie<T> track(@NotNull T object) throws CookieReflectException{
+        Settings settings = this.settings;
+        ClassBinding<T> binding = ClassBinding.of((Class<T>) object.getClass());
+        if(settings.listener != null){
+            settings.listener.onBindingLookup(binding.type,!binding.claimFresh());
+        }
+        return track(settings,object,binding);
+    }
+
+    /*
+     * Make a cookie of only the keys of the tracked object whose value changed since it was tracked.
+     * Keys are compared through the same {@link SerializedName} and {@link DeserializeMethod} metadata as {@link #toCookie(Object)},
+     * so a key is written exactly when its pair would differ. Keys whose value became {@code null} are not written,
+     * see {@link #getDeletedKeys(TrackedCookie)}.
+     * @return The changed pairs, or an empty string if nothing changed.
+     * @exception CookieReflectException When an exception is thrown during reflect operation.
+     */
+    public String toChangedCookie(@NotNull TrackedCookie<?> tracked) throws CookieReflectException{
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeChanges(settings,tracked,(property,pair) -> {
+                if(pair != null){
+                    if(sb.length() > 0){
+                        sb.append("; ");
+                    }
+                    sb.append(pair);
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * @return The keys of the tracked object that had a value when it was tracked but are {@code null} now,
+     * which a client has to be told to delete.
+     * @exception CookieReflectException When an exception is thrown during reflect operation.
+     */
+    public List<String> getDeletedKeys(@NotNull TrackedCookie<?> tracked) throws CookieReflectException{
+        List<String> keys = new ArrayList<>();
+        try {
+            writeChanges(settings,tracked,(property,pair) -> {
+                if(pair == null){
+                    keys.add(property.name);
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return keys;
+    }
+
+    /*
+     * Make the Set-Cookie header values that bring a client up to date with the tracked object:
+     * one for every changed key, like {@link #toSetCookies(Object)}, and one with an empty value,
+     * "Max-Age=0" and an Expires in the past for every deleted key.
+     * @exception CookieReflectException When an exception is thrown during reflect operation.
+     */
+    public List<String> toChangedSetCookies(@NotNull TrackedCookie<?> tracked) throws CookieReflectException{
+        SetCookie attributes = tracked.binding.attributes();
+        SetCookie deletion = attributes.toBuilder().maxAge(0).expires(0).build();
+        List<String> headers = new ArrayList<>();
+        StringBuilder sb = new StringBuilder(64);
+        try {
+            writeChanges(settings,tracked,(property,pair) -> {
+                sb.setLength(0);
+                if(pair != null){
+                    sb.append(pair);
+                    attributes.writeAttributes(sb);
+                }else{
+                    sb.append(property.prefix);
+                    deletion.writeAttributes(sb);
+                }
+                headers.add(sb.toString());
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return headers;
+    }
+
+    /*
+     * Report {@link #snapshot} to the listener as a write, if any.
+     */
+    private static <T> TrackedCookie<T> track(Settings settings,T object,ClassBinding<T> binding) throws CookieReflectException{
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            return snapshot(settings,object,binding);
+        }
+        long start = System.nanoTime();
+        TrackedCookie<T> tracked;
+        try {
+            tracked = snapshot(settings,object,binding);
+        } catch (CookieReflectException | RuntimeException e) {
+            listener.onError(binding.type,e);
+            throw e;
+        }
+        listener.onWrite(binding.type,tracked.snapshotLength(),System.nanoTime() - start);
+        return tracked;
+    }
+
+    /*
+     * Write the pair of every property one after another, keeping the bounds of each.
+     * Always goes through the properties rather than a generated adapter, so the pairs line up with {@link ClassBinding#writeProperties}.
+     */
+    private static <T> TrackedCookie<T> snapshot(Settings settings,T object,ClassBinding<T> binding) throws CookieReflectException{
+        int count = pairCount(binding);
+        int[] bounds = new int[count * 2];
+        StringBuilder sb = new StringBuilder(binding.lengthHint);
+        try {
+            for(int i = 0;i < count;i ++){
+                int start = sb.length();
+                if(writePair(settings,object,binding,i,sb)){
+                    bounds[i * 2] = start;
+                    bounds[i * 2 + 1] = sb.length();
+                }else{
+                    bounds[i * 2] = -1;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new TrackedCookie<>(object,binding,sb.toString(),bounds);
+    }
+
+    /*
+     * Report {@link #compareChanges} to the listener as a write of the changed pairs, if any.
+     */
+    private static void writeChanges(Settings settings,TrackedCookie<?> tracked,ChangeWriter changes) throws CookieReflectException,IOException{
+        CookieListener listener = settings.listener;
+        if(listener == null){
+            compareChanges(settings,tracked,changes);
+            return;
+        }
+        Class<?> type = tracked.binding.type;
+        long start = System.nanoTime();
+        int length;
+        try {
+            length = compareChanges(settings,tracked,changes);
+        } catch (CookieReflectException | IOException | RuntimeException e) {
+            listener.onError(type,e);
+            throw e;
+        }
+        listener.onWrite(type,length,System.nanoTime() - start);
+    }
+
+    /*
+     * Pass every property of the tracked object whose pair differs from the snapshot to {@code changes}.
+     * @return The length of the changed pairs.
+     */
+    private static int compareChanges(Settings settings,TrackedCookie<?> tracked,ChangeWriter changes) throws CookieReflectException,IOException{
+        Object object = tracked.get();
+        ClassBinding<?> binding = tracked.binding;
+        StringBuilder pair = new StringBuilder(32);
+        int length = 0;
+        for(int i = 0,count = pairCount(binding);i < count;i ++){
+            pair.setLength(0);
+            if(writePair(settings,object,binding,i,pair)){
+                if(!tracked.isUnchanged(i,pair)){
+                    length += pair.length();
+                    changes.write(binding.packed != null ? null : binding.writeProperties.get(i),pair);
+                }
+            }else if(tracked.hadValue(i)){
+                changes.write(binding.writeProperties.get(i),null);
+            }
+        }
+        return length;
+    }
+
+    /*
+     * @return The count of pairs an object is written as: one per property, or a single one for a {@link PackedCookie} class.
+     */
+    private static int pairCount(ClassBinding<?> binding){
+        return binding.packed != null ? 1 : binding.writeProperties.size();
+    }
+
+    /*
+     * Write the pair at {@code index} of {@link #pairCount(ClassBinding)}.
+     * @return Whether anything was written.
+     */
+    private static boolean writePair(Settings settings,Object object,ClassBinding<?> binding,int index,StringBuilder out) throws CookieReflectException,IOException{
+        if(binding.packed != null){
+            binding.packed.write(settings.converters,object,out);
+            return true;
+        }
+        return writeProperty(settings,object,binding.writeProperties.get(index),true,out,null);
+    }
+
+    private interface ChangeWriter{
+        /*
+         * @param pair "key=value" if the value changed, {@code null} if the key was deleted.
+         */
+        void write(ClassBinding.WriteProperty property,CharSequence pair) throws IOException;
+    }
+
+    /*
+     * Escape {@code value} straight into {@code out} through the range methods of the encoder.
+     */
+    static void escape(TextEncoder encoder,String value,Appendable out) throws IOException{
+        if(encoder.needsEscape(value,0,value.length())){
+            encoder.escape(value,0,value.length(),out);
+        }else{
+            out.append(value);
+        }
+    }
+
+    /*
+     * Register a converter for fields of {@code type}. See {@link Builder#registerConverter(Class, ValueConverter)}.
+     * @exception IllegalStateException When this parser is immutable.
+     * @return Current instance (for link up convenience).
+     */
+    public <T> CookieParser registerConverter(@NotNull Class<T> type,@NotNull ValueConverter<T> converter){
+        return update(builder -> builder.registerConverter(type,converter));
+    }
+
+    /*
+     * Set the listener to report to. See {@link Builder#listener(CookieListener)}.
+     * @exception IllegalStateException When this parser is immutable.
+     * @return Current instance (for link up convenience).
+     */
+    public CookieParser setListener(@Nullable CookieListener listener){
+        return update(builder -> builder.listener(listener));
+    }
+
+    /*
+     * Set the {@link TextEncoder} of current instance.
+     * @see {@link TextEncoder}
+     * @exception IllegalStateException When this parser is immutable.
+     * @return Current instance (for link up convenience).
+     */
+    public CookieParser setEncoder(@NotNull TextEncoder encoder) {
+        return update(builder -> builder.encoder(encoder));
+    }
+
+    /*
+     * Set the current instance not to process character escaping.
+     * @exception IllegalStateException When this parser is immutable.
+     * @return Current instance (for link up convenience).
+     */
+    public CookieParser dontProcessEncoding(){
+        return update(Builder::dontProcessEncoding);
+    }
+
+    /*
+     * Set the current instance to only look for the keys the target class binds. See {@link Builder#selectiveParsing(boolean)}.
+     * @exception IllegalStateException When this parser is immutable.
+     * @return Current instance (for link up convenience).
+     */
+    public CookieParser selectiveParsing(){
+        return update(builder -> builder.selectiveParsing(true));
+    }
+
+    private CookieParser update(Consumer<Builder> change){
+        if(immutable){
+            throw new IllegalStateException("This parser is immutable, use toBuilder() to configure a new one.");
+        }
+        synchronized (this){
+            Builder builder = new Builder(settings);
+            change.accept(builder);
+            settings = builder.settings();
+        }
+        return this;
+    }
+
+    /*
+     * Configures an immutable {@link CookieParser}. A builder is not thread safe, but the parsers it builds are.
+     * It can go on being changed and build more parsers, which are not affected.
+     */
+    public static final class Builder{
+        private TextEncoder encoder = new DefaultTextEncoder();
+        private boolean selective = false;
+        private boolean lenient = false;
+        private final Map<Class<?>,ValueConverter<?>> converters = new HashMap<>();
+        private CookieListener listener = null;
+        private DecodedValueCache valueCache = null;
+
+        private Builder(){}
+
+        private Builder(Settings settings){
+            this.encoder = settings.encoder;
+            this.selective = settings.selective;
+            this.lenient = settings.lenient;
+            this.converters.putAll(settings.converters);
+            this.listener = settings.listener;
+            this.valueCache = settings.valueCache;
+        }
+
+        /*
+         * Set the {@link TextEncoder}, {@link DefaultTextEncoder} by default.
+         * The encoder is shared by every thread using the parser, so it must be thread safe.
+         */
+        public Builder encoder(@NotNull TextEncoder encoder){
+            this.encoder = encoder;
+            return this;
+        }
+
+        /*
+         * Don't process character escaping.
+         */
+        public Builder dontProcessEncoding(){
+            this.encoder = new NoProcess();
+            return this;
+        }
+
+        /*
+         * Whether to only look for the keys the target class binds when parsing into a class, {@code false} by default.
+         * Pairs with other keys are skipped without being turned into Strings or unescaped,
+         * and parsing stops as soon as every bound key has been seen. So in this mode:
+         * 1. If a key appears more than once, the first value wins instead of the last one.
+         * 2. Syntax errors after the last bound key are not reported.
+         * Parsing into a {@link Map} is not affected.
+         */
+        public Builder selectiveParsing(boolean selective){
+            this.selective = selective;
+            return this;
+        }
+
+        /*
+         * Whether to skip pairs without '=' instead of failing with a {@link CookieSyntaxException}, {@code false} by default.
+         * A cookie with nothing but whitespace is still an error.
+         */
+        public Builder lenient(boolean lenient){
+            this.lenient = lenient;
+            return this;
+        }
+
+        /*
+         * Set the listener to report parsing, generating, failures and binding lookups to, {@code null} by default.
+         * Everything but {@link #view(CharSequence)} is reported. Set-Cookie headers are reported with {@link SetCookie} as the type,
+         * tracking an object as a write of its snapshot, and the methods of a {@link TrackedCookie} as a write of the changed pairs.
+         * The listener is shared by every thread using the parser, so it must be thread safe.
+         * @param listener The listener, or {@code null} not to report. See {@link InMemoryCookieMetrics}.
+         */
+        public Builder listener(@Nullable CookieListener listener){
+            this.listener = listener;
+            return this;
+        }
+
+        /*
+         * Register a converter for fields of {@code type}, so they are parsed and generated instead of skipped.
+         * Fields of types without a converter are skipped when parsing, and written with {@link Object#toString()}.
+         * @param type Exactly the declared type of the fields, subclasses and interfaces are not looked up.
+         * @exception IllegalArgumentException When {@code type} is built in, see {@link ValueConverter}.
+         */
+        public <T> Builder registerConverter(@NotNull Class<T> type,@NotNull ValueConverter<T> converter){
+            if(ClassBinding.ValueType.of(type) != ClassBinding.ValueType.CUSTOM){
+                throw new IllegalArgumentException("Can't replace the converter of built in type " + type.getName() + ".");
+            }
+            converters.put(type,converter);
+            return this;
+        }
+
+        /*
+         * Set the cache of unescaped values, {@code null} (no cache) by default.
+         * String values, including those of maps and views, are then looked up in the cache before being unescaped.
+         * A cache is thread safe and can be shared by several parsers.
+         */
+        public Builder valueCache(@Nullable DecodedValueCache valueCache){
+            this.valueCache = valueCache;
+            return this;
+        }
+
+        public CookieParser build(){
+            return new CookieParser(settings());
+        }
+
+        private Settings settings(){
+            return new Settings(this);
+        }
+    }
+
+    /*
+     * The default {@link TextEncoder} the parser use.
+     * Escape policy: Will escape following character: (space) [ ] ( ) = , " / ? @ : ; %
+     * as '%' and two hex digits, and every non-ASCII character as "%u" and four hex digits.
+     * Both directions return the given instance itself if there is nothing to process.
+     * A subclass overriding {@link #escape(String)} or {@link #unescape(String)} has that direction go through its override.
+     */
+    public static class DefaultTextEncoder implements TextEncoder{
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+        private static final boolean[] ESCAPED = new boolean[128];
+        private static final byte[] HEX_VALUES = new byte[128];
+
+        static {
+            for(char c : " []()=,\"/?@:;%".toCharArray()){
+                ESCAPED[c] = true;
+            }
+            for(int i = 0;i < HEX_VALUES.length;i ++){
+                HEX_VALUES[i] = (byte) Character.digit((char) i,16);
+            }
+        }
+
+        /*
+         * Whether a subclass overrides the String method of that direction, which the range methods then have to go through.
+         */
+        private final boolean overridesEscape;
+        private final boolean overridesUnescape;
+
+        public DefaultTextEncoder(){
+            this.overridesEscape = overrides("escape");
+            this.overridesUnescape = overrides("unescape");
+        }
+
+        private boolean overrides(String name){
+            if(getClass() == DefaultTextEncoder.class){
+                return false;
+            }
+            try {
+                return getClass().getMethod(name,String.class).getDeclaringClass() != DefaultTextEncoder.class;
+            } catch (NoSuchMethodException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public String escape(@NotNull String original) {
+            int length = original.length();
+            int i = 0;
+            while(i < length && !needToEncode(original.charAt(i))){
+                i ++;
+            }
+            if(i == length){
+                return original;
+            }
+            StringBuilder sb = new StringBuilder(length + 16);
+            sb.append(original,0,i);
+            try {
+                escapeRange(original,i,length,sb);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void escape(@NotNull CharSequence text, int start, int end, @NotNull Appendable out) throws IOException {
+            if(overridesEscape){
+                out.append(escape(text.subSequence(start,end).toString()));
+            }else{
+                escapeRange(text,start,end,out);
+            }
+        }
+
+        @Override
+        public boolean needsEscape(@NotNull CharSequence text, int start, int end) {
+            if(overridesEscape){
+                return true;
+            }
+            for(int i = start;i < end;i ++){
+                if(needToEncode(text.charAt(i))){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+         * Escape a range of {@code original} straight into {@code out}.
+         */
+        private static void escapeRange(CharSequence original,int start,int end,Appendable out) throws IOException{
+            int plainStart = start;
+            for(int i = start;i < end;i ++){
+                char c = original.charAt(i);
+                if(needToEncode(c)){
+                    if(plainStart < i){
+                        out.append(original,plainStart,i);
+                    }
+                    appendEscaped(out,c);
+                    plainStart = i + 1;
+                }
+            }
+            if(plainStart < end){
+                out.append(original,plainStart,end);
+            }
+        }
+
+        private static boolean needToEncode(char c){
+            return c > 127 || ESCAPED[c];
+        }
+
+        private static void appendEscaped(Appendable out,char c) throws IOException{
+            out.append('%');
+            if(c > 127){
+                out.append('u');
+                out.append(HEX_DIGITS[c >>> 12]);
+                out.append(HEX_DIGITS[(c >>> 8) & 0xf]);
+            }
+            out.append(HEX_DIGITS[(c >>> 4) & 0xf]);
+            out.append(HEX_DIGITS[c & 0xf]);
+        }
+
+        @Override
+        public String unescape(@NotNull String encoded) {
+            int i = encoded.indexOf('%');
+            if(i < 0){
+                return encoded;
+            }
+            StringBuilder sb = new StringBuilder(encoded.length());
+            unescape(encoded,0,i,encoded.length(),sb);
+            return sb.toString();
+        }
+
+        @Override
+        public void unescape(@NotNull CharSequence text, int start, int end, @NotNull Appendable out) throws IOException {
+            if(overridesUnescape){
+                out.append(unescape(text.subSequence(start,end).toString()));
+                return;
+            }
+            int i = start;
+            while(i < end && text.charAt(i) != '%'){
+                i ++;
+            }
+            if(i == end){
+                out.append(text,start,end);
+            }else if(out instanceof StringBuilder){
+                unescape(text,start,i,end,(StringBuilder) out);
+            }else{
+                StringBuilder sb = new StringBuilder(end - start);
+                unescape(text,start,i,end,sb);
+                out.append(sb);
+            }
+        }
+
+        @Override
+        public boolean needsUnescape(@NotNull CharSequence text, int start, int end) {
+            if(overridesUnescape){
+                return true;
+            }
+            for(int i = start;i < end;i ++){
+                if(text.charAt(i) == '%'){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /*
+         * Append the unescaped range to {@code sb}.
+         * @param firstEscape The position of the first '%' in the range.
+         */
+        private static void unescape(CharSequence encoded,int start,int firstEscape,int end,StringBuilder sb){
+            sb.append(encoded,start,firstEscape);
+            int i = firstEscape;
+            while(i < end){
+                char c = encoded.charAt(i);
+                if(c == '%'){
+                    int unicode = i + 5 < end && encoded.charAt(i + 1) == 'u' ? hexValue(encoded,i + 2,4) : -1;
+                    if(unicode >= 0){
+                        sb.append((char) unicode);
+                        i += 6;
+                        continue;
+                    }
+                    int ascii = i + 2 < end ? hexValue(encoded,i + 1,2) : -1;
+                    if(ascii >= 0){
+                        sb.append((char) ascii);
+                        i += 3;
+                        continue;
+                    }
+                }
+                sb.append(c);
+                i ++;
+            }
+        }
+
+        /*
+         * @return The value of {@code count} hex digits starting at {@code start}, or -1 if they are not all hex digits.
+         */
+        private static int hexValue(CharSequence text,int start,int count){
+            int value = 0;
+            for(int i = start;i < start + count;i ++){
+                char c = text.charAt(i);
+                int digit = c < 128 ? HEX_VALUES[c] : -1;
+                if(digit < 0){
+                    return -1;
+                }
+                value = (value << 4) | digit;
+            }
+            return value;
+        }
+    }
+
+    /*
+     * Counts the chars appended to {@code out}, for {@link CookieListener#onWrite}.
+     */
+    private static final class CountingAppendable implements Appendable{
+        private final Appendable out;
+        int count;
+
+        CountingAppendable(Appendable out){
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            out.append(text);
+            count += text.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            out.append(text,start,end);
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            count ++;
+            return this;
+        }
+    }
+
+    /*
+     * Everything a parser is configured with. Replaced as a whole, so a call sees one consistent configuration.
+     */
+    private static final class Settings{
+        final TextEncoder encoder;
+        final boolean selective;
+        final boolean lenient;
+        final Map<Class<?>,ValueConverter<?>> converters;
+        final CookieListener listener;
+        final DecodedValueCache valueCache;
+
+        Settings(Builder builder){
+            this.encoder = builder.encoder;
+            this.selective = builder.selective;
+            this.lenient = builder.lenient;
+            this.converters = builder.converters.isEmpty()
+                    ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(builder.converters));
+            this.listener = builder.listener;
+            this.valueCache = builder.valueCache;
+        }
+    }
+
+    private static class NoProcess implements TextEncoder{
+
+        @Override
         public String escape(@NotNull String original) {
             return original;
         }
@@ -384,5 +1681,25 @@ public class CookieParser{
         public String unescape(@NotNull String encoded) {
             return encoded;
         }
+
+        @Override
+        public void escape(@NotNull CharSequence text, int start, int end, @NotNull Appendable out) throws IOException {
+            out.append(text,start,end);
+        }
+
+        @Override
+        public void unescape(@NotNull CharSequence text, int start, int end, @NotNull Appendable out) throws IOException {
+            out.append(text,start,end);
+        }
+
+        @Override
+        public boolean needsEscape(@NotNull CharSequence text, int start, int end) {
+            return false;
+        }
+
+        @Override
+        public boolean needsUnescape(@NotNull CharSequence text, int start, int end) {
+            return false;
+        }
     }
 }
\ No newline at end of file
@@ -1,7 +1,22 @@
 package com.nanhuajiaren.cookieparse;
 
 public class CookieSyntaxException extends Exception{
+    private final int position;
+
     public CookieSyntaxException(String message){
         super(message);
+        this.position = -1;
+    }
+
+    public CookieSyntaxException(String message,int position){
+        super(message + " (at position " + position + ")");
+        this.position = position;
+    }
+
+    /*
+     * @return The position of the character in the cookie where the error was found, or -1 if unknown.
+     */
+    public int getPosition(){
+        return position;
     }
 }
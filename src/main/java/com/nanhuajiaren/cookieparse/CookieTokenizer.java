@@ -0,0 +1,164 @@
+package com.nanhuajiaren.cookieparse;
+
+/*
+ * Single-pass scanner of a cookie string.
+ * Only the offsets of the current key-value pair are recorded, so no String is created
+ * unless {@link #key()} or {@link #value()} is called.
+ *
+ * Rules:
+ * 1. Pairs are separated by ';'. Empty pairs are skipped.
+ * 2. A pair is split on its first '=', so the value itself can contain '=' (like base64 text).
+ * 3. Whitespace around the key and the value is ignored.
+ * 4. A pair without '=' is a syntax error, or skipped in lenient mode.
+ */
+final class CookieTokenizer{
+    static final char SEPARATOR = ';';
+    static final char OPERATOR = '=';
+
+    private final CharSequence input;
+    private final int end;
+    private final boolean lenient;
+    private int position;
+    private int pairIndex = -1;
+    private int keyStart;
+    private int keyEnd;
+    private int valueStart;
+    private int valueEnd;
+
+    CookieTokenizer(CharSequence input) throws CookieSyntaxException{
+        this(input,0,input.length(),false);
+    }
+
+    CookieTokenizer(CharSequence input,boolean lenient) throws CookieSyntaxException{
+        this(input,0,input.length(),lenient);
+    }
+
+    /*
+     * @param lenient Whether to skip pairs without '=' instead of failing.
+     * @exception CookieSyntaxException When the range contains nothing but whitespace.
+     */
+    CookieTokenizer(CharSequence input,int start,int end,boolean lenient) throws CookieSyntaxException{
+        this.input = input;
+        this.end = end;
+        this.lenient = lenient;
+        this.position = start;
+        int i = start;
+        while(i < end && isWhitespace(input.charAt(i))){
+            i ++;
+        }
+        if(i == end){
+            throw new CookieSyntaxException("No input to process.");
+        }
+    }
+
+    /*
+     * Move to the next key-value pair.
+     * @return {@code false} if there is no more pair.
+     * @exception CookieSyntaxException When the pair contains no '=', unless lenient.
+     */
+    boolean next() throws CookieSyntaxException{
+        CharSequence input = this.input;
+        int end = this.end;
+        int i = position;
+        while(i < end){
+            pairIndex ++;
+            while(i < end && isWhitespace(input.charAt(i))){
+                i ++;
+            }
+            if(i == end){
+                break;
+            }
+            if(input.charAt(i) == SEPARATOR){
+                i ++;
+                continue;
+            }
+            int start = i;
+            int operator = -1;
+            char c;
+            while(i < end && (c = input.charAt(i)) != SEPARATOR){
+                if(c == OPERATOR && operator < 0){
+                    operator = i;
+                }
+                i ++;
+            }
+            if(operator < 0){
+                if(lenient){
+                    if(i < end){
+                        i ++;
+                    }
+                    continue;
+                }
+                position = end;
+                throw new CookieSyntaxException(
+                        "Missing '" + OPERATOR + "' in key-value pair " + pairIndex + ".",start);
+            }
+            position = i < end ? i + 1 : i;
+            keyStart = start;
+            keyEnd = trimEnd(start,operator);
+            valueStart = trimStart(operator + 1,i);
+            valueEnd = trimEnd(valueStart,i);
+            return true;
+        }
+        position = end;
+        return false;
+    }
+
+    CharSequence input(){
+        return input;
+    }
+
+    /*
+     * @return The index of the current pair among all ';' separated pairs, counting empty ones.
+     */
+    int pairIndex(){
+        return pairIndex;
+    }
+
+    int keyStart(){
+        return keyStart;
+    }
+
+    int keyEnd(){
+        return keyEnd;
+    }
+
+    int valueStart(){
+        return valueStart;
+    }
+
+    int valueEnd(){
+        return valueEnd;
+    }
+
+    String key(){
+        return input.subSequence(keyStart,keyEnd).toString();
+    }
+
+    /*
+     * @return The value of current pair, not unescaped yet.
+     */
+    String value(){
+        return input.subSequence(valueStart,valueEnd).toString();
+    }
+
+    private int trimStart(int from,int to){
+        while(from < to && isWhitespace(input.charAt(from))){
+            from ++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int from,int to){
+        while(to > from && isWhitespace(input.charAt(to - 1))){
+            to --;
+        }
+        return to;
+    }
+
+    /*
+     * Same as what {@link String#trim()} removes.
+     */
+    private static boolean isWhitespace(char c){
+        return c <= ' ';
+    }
+}
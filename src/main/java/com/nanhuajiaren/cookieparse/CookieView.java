@@ -0,0 +1,160 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/*
+ * A lazy, read-only view of a cookie string, created by {@link CookieParser#view(CharSequence)}.
+ * The cookie is scanned once into an array of offsets; a value is only unescaped when it is first asked for,
+ * and then kept for later calls. Nothing else is turned into a String unless asked for.
+ *
+ * Like {@link CookieParser#fromCookie(String)}, if a key appears more than once the last value wins for {@link #get(String)},
+ * while iteration shows every pair in order.
+ * An instance can be read from several threads: at worst a value is unescaped more than once.
+ */
+public final class CookieView implements Iterable<Map.Entry<String,String>>{
+    private static final int KEY_START = 0;
+    private static final int KEY_END = 1;
+    private static final int VALUE_START = 2;
+    private static final int VALUE_END = 3;
+    private static final int STRIDE = 4;
+
+    private final CharSequence cookie;
+    private final TextEncoder encoder;
+    private final DecodedValueCache valueCache;
+    private final int[] offsets;
+    private final int size;
+    private final String[] values;
+
+    /*
+     * @param valueCache The cache to unescape values through, or {@code null}.
+     * @param lenient Whether to skip pairs without '=' instead of failing.
+     */
+    CookieView(CharSequence cookie,TextEncoder encoder,DecodedValueCache valueCache,boolean lenient) throws CookieSyntaxException{
+        this.cookie = cookie;
+        this.encoder = encoder;
+        this.valueCache = valueCache;
+        CookieTokenizer tokenizer = new CookieTokenizer(cookie,lenient);
+        int[] offsets = new int[8 * STRIDE];
+        int size = 0;
+        while(tokenizer.next()){
+            if((size + 1) * STRIDE > offsets.length){
+                int[] grown = new int[offsets.length * 2];
+                System.arraycopy(offsets,0,grown,0,offsets.length);
+                offsets = grown;
+            }
+            int base = size * STRIDE;
+            offsets[base + KEY_START] = tokenizer.keyStart();
+            offsets[base + KEY_END] = tokenizer.keyEnd();
+            offsets[base + VALUE_START] = tokenizer.valueStart();
+            offsets[base + VALUE_END] = tokenizer.valueEnd();
+            size ++;
+        }
+        this.offsets = offsets;
+        this.size = size;
+        this.values = new String[size];
+    }
+
+    /*
+     * @return The number of key-value pairs, counting repeated keys.
+     */
+    public int size(){
+        return size;
+    }
+
+    /*
+     * @return The key of the pair at {@code index}. Keys are not unescaped.
+     */
+    public String name(int index){
+        int base = checkIndex(index) * STRIDE;
+        return cookie.subSequence(offsets[base + KEY_START],offsets[base + KEY_END]).toString();
+    }
+
+    /*
+     * @return The unescaped value of the pair at {@code index}.
+     */
+    public String value(int index){
+        checkIndex(index);
+        String value = values[index];
+        if(value == null){
+            int base = index * STRIDE;
+            int start = offsets[base + VALUE_START];
+            int end = offsets[base + VALUE_END];
+            value = valueCache != null
+                    ? valueCache.get(encoder,cookie,start,end,null)
+                    : CookieParser.unescape(encoder,cookie,start,end,null);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /*
+     * @return The unescaped value of the last pair with key {@code name}, or {@code null} if there is none.
+     */
+    public String get(@NotNull String name){
+        int index = indexOf(name);
+        return index < 0 ? null : value(index);
+    }
+
+    public boolean contains(@NotNull String name){
+        return indexOf(name) >= 0;
+    }
+
+    /*
+     * @return The index of the last pair with key {@code name}, or -1 if there is none.
+     */
+    public int indexOf(@NotNull String name){
+        int length = name.length();
+        for(int i = size - 1;i >= 0;i --){
+            int start = offsets[i * STRIDE + KEY_START];
+            if(offsets[i * STRIDE + KEY_END] - start == length && regionMatches(start,name)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(int start,String name){
+        for(int i = 0;i < name.length();i ++){
+            if(cookie.charAt(start + i) != name.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int checkIndex(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return index;
+    }
+
+    /*
+     * Iterate every pair in order. Values are unescaped as the entries are read.
+     */
+    @Override
+    public Iterator<Map.Entry<String,String>> iterator() {
+        return new Iterator<Map.Entry<String,String>>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Map.Entry<String,String> next() {
+                if(next >= size){
+                    throw new NoSuchElementException();
+                }
+                int index = next ++;
+                return new AbstractMap.SimpleImmutableEntry<>(name(index),value(index));
+            }
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package com.nanhuajiaren.cookieparse;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * A bounded cache from raw cookie values to their unescaped Strings, set with {@link CookieParser.Builder#valueCache(DecodedValueCache)}.
+ * Values that come again and again (session IDs, consent strings, A/B flags) are then neither unescaped nor allocated again,
+ * and every object parsed from the same value shares one String.
+ *
+ * A lookup hashes the raw range in place, so nothing is allocated on a hit.
+ * The cache is split into sets of four entries; a value can only live in the set its hash picks,
+ * and a full set evicts with the CLOCK policy: an entry read since the last eviction pass gets a second chance.
+ * Lookups take no lock: entries are immutable apart from that bit, so readers at worst miss a value just put by another thread.
+ * One cache can be shared by several parsers, also with different encoders.
+ */
+public final class DecodedValueCache {
+    private static final int WAYS = 4;
+
+    private final Entry[] entries;
+    private final int setMask;
+    private final int maxValueLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /*
+     * Cache values of up to 256 chars.
+     * @param capacity The maximum count of values, rounded up to a power of two.
+     */
+    public DecodedValueCache(int capacity){
+        this(capacity,256);
+    }
+
+    /*
+     * @param capacity The maximum count of values, rounded up to a power of two.
+     * @param maxValueLength Longer raw values are unescaped without being cached.
+     */
+    public DecodedValueCache(int capacity,int maxValueLength){
+        if(capacity <= 0 || capacity > 1 << 28){
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        int sets = Integer.highestOneBit(Math.max(1,(capacity + WAYS - 1) / WAYS));
+        if(sets * WAYS < capacity){
+            sets <<= 1;
+        }
+        this.entries = new Entry[sets * WAYS];
+        this.setMask = sets - 1;
+        this.maxValueLength = maxValueLength;
+    }
+
+    /*
+     * @return The unescaped {@code text[start,end)}, shared with earlier calls for the same value and encoder.
+     */
+    String get(TextEncoder encoder,CharSequence text,int start,int end,StringBuilder scratch){
+        int length = end - start;
+        if(length > maxValueLength){
+            return CookieParser.unescape(encoder,text,start,end,scratch);
+        }
+        int hash = NameTable.hash(text,start,end);
+        int base = (NameTable.spread(hash) & setMask) * WAYS;
+        Entry[] entries = this.entries;
+        for(int i = base;i < base + WAYS;i ++){
+            Entry entry = entries[i];
+            if(entry != null && entry.hash == hash && entry.encoder == encoder
+                    && entry.raw.length() == length && NameTable.matches(entry.raw,text,start)){
+                //Only write when needed, so a hot entry doesn't bounce between the caches of cores.
+                if(!entry.referenced){
+                    entry.referenced = true;
+                }
+                hits.increment();
+                return entry.decoded;
+            }
+        }
+        misses.increment();
+        String raw = text.subSequence(start,end).toString();
+        String decoded = CookieParser.unescape(encoder,raw,0,length,scratch);
+        entries[victim(entries,base)] = new Entry(hash,encoder,raw,decoded);
+        return decoded;
+    }
+
+    /*
+     * @return The slot to put a new entry into: an empty one, or the first one not read since the last pass.
+     */
+    private static int victim(Entry[] entries,int base){
+        for(int i = base;i < base + WAYS;i ++){
+            if(entries[i] == null){
+                return i;
+            }
+        }
+        for(int pass = 0;pass < 2;pass ++){
+            for(int i = base;i < base + WAYS;i ++){
+                Entry entry = entries[i];
+                if(entry == null || !entry.referenced){
+                    return i;
+                }
+                entry.referenced = false;
+            }
+        }
+        return base;
+    }
+
+    public int getCapacity(){
+        return entries.length;
+    }
+
+    public long getHitCount(){
+        return hits.sum();
+    }
+
+    /*
+     * Lookups that had to unescape the value. Values longer than the cached length are not counted.
+     */
+    public long getMissCount(){
+        return misses.sum();
+    }
+
+    /*
+     * @return Hits among all counted lookups, or 0 if there was none.
+     */
+    public double getHitRate(){
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /*
+     * Remove every value. The counters are kept.
+     */
+    public void clear(){
+        Arrays.fill(entries,null);
+    }
+
+    @Override
+    public String toString() {
+        return "DecodedValueCache{capacity=" + getCapacity() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "}";
+    }
+
+    private static final class Entry{
+        final int hash;
+        final TextEncoder encoder;
+        /*
+         * The same instance as {@link #decoded} if there was nothing to unescape.
+         */
+        final String raw;
+        final String decoded;
+        /*
+         * Set by hits and cleared by eviction passes. Races only make the policy less exact.
+         */
+        boolean referenced;
+
+        Entry(int hash,TextEncoder encoder,String raw,String decoded){
+            this.hash = hash;
+            this.encoder = encoder;
+            this.raw = raw;
+            this.decoded = decoded;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.nanhuajiaren.cookieparse;
+
+/*
+ * Converts enum constants by {@link Enum#name()}, looked up in a precomputed {@link NameTable}.
+ */
+final class EnumConverter<E extends Enum<E>> implements ValueConverter<E>{
+    private final Class<E> type;
+    private final E[] constants;
+    private final NameTable names;
+
+    EnumConverter(Class<E> type){
+        this.type = type;
+        this.constants = type.getEnumConstants();
+        String[] names = new String[constants.length];
+        for(int i = 0;i < constants.length;i ++){
+            names[i] = constants[i].name();
+        }
+        this.names = new NameTable(names);
+    }
+
+    @SuppressWarnings({"unchecked","rawtypes"})
+    static EnumConverter<?> of(Class<?> type){
+        return new EnumConverter(type);
+    }
+
+    @Override
+    public E parse(CharSequence text, int start, int end) throws CookieSyntaxException {
+        int index = names.indexOf(text,start,end);
+        if(index < 0){
+            throw new CookieSyntaxException("No constant of " + type.getName() + " named \"" + text.subSequence(start,end) + "\".");
+        }
+        return constants[index];
+    }
+
+    @Override
+    public String format(E value) {
+        return value.name();
+    }
+}
@@ -0,0 +1,481 @@
+package com.nanhuajiaren.cookieparse;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/*
+ * Reads and writes a bound field.
+ * Reflection is only used to create the accessor: the default implementation works through
+ * {@link MethodHandle}s with a primitive specialized handle for primitive fields, so no boxing happens on the hot path.
+ * If no handle can be created (for example the field is not accessible), {@link Field} itself is used instead.
+ * The getter and the setter are chosen apart, so a field that can't be written through a handle (such as a final one)
+ * is still read through one.
+ */
+abstract class FieldAccessor{
+    final Field field;
+
+    FieldAccessor(Field field){
+        this.field = field;
+    }
+
+    static FieldAccessor of(Field field){
+        try {
+            field.setAccessible(true);
+        } catch (RuntimeException ignored) {
+            //Access will be checked again by the fallback accessor.
+        }
+        try {
+            return new HandleAccessor(field);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return new ReflectAccessor(field);
+        }
+    }
+
+    abstract Object get(Object target) throws IllegalAccessException;
+
+    abstract void set(Object target,Object value) throws IllegalAccessException;
+
+    abstract int getInt(Object target) throws IllegalAccessException;
+
+    abstract void setInt(Object target,int value) throws IllegalAccessException;
+
+    abstract long getLong(Object target) throws IllegalAccessException;
+
+    abstract void setLong(Object target,long value) throws IllegalAccessException;
+
+    abstract short getShort(Object target) throws IllegalAccessException;
+
+    abstract void setShort(Object target,short value) throws IllegalAccessException;
+
+    abstract byte getByte(Object target) throws IllegalAccessException;
+
+    abstract void setByte(Object target,byte value) throws IllegalAccessException;
+
+    abstract float getFloat(Object target) throws IllegalAccessException;
+
+    abstract void setFloat(Object target,float value) throws IllegalAccessException;
+
+    abstract double getDouble(Object target) throws IllegalAccessException;
+
+    abstract void setDouble(Object target,double value) throws IllegalAccessException;
+
+    abstract boolean getBoolean(Object target) throws IllegalAccessException;
+
+    abstract void setBoolean(Object target,boolean value) throws IllegalAccessException;
+
+    abstract char getChar(Object target) throws IllegalAccessException;
+
+    abstract void setChar(Object target,char value) throws IllegalAccessException;
+
+    private static final class HandleAccessor extends FieldAccessor{
+        private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final MethodHandle primitiveGetter;
+        private final MethodHandle primitiveSetter;
+        /*
+         * Writes the field when no setter handle can be created, {@code null} otherwise.
+         */
+        private final ReflectAccessor fallback;
+
+        HandleAccessor(Field field) throws IllegalAccessException{
+            super(field);
+            Class<?> type = field.getType();
+            boolean isStatic = Modifier.isStatic(field.getModifiers());
+            MethodHandle get = LOOKUP.unreflectGetter(field);
+            MethodHandle set;
+            try {
+                set = LOOKUP.unreflectSetter(field);
+            } catch (IllegalAccessException | RuntimeException e) {
+                set = null;
+            }
+            if(isStatic){
+                get = MethodHandles.dropArguments(get,0,Object.class);
+                if(set != null){
+                    set = MethodHandles.dropArguments(set,0,Object.class);
+                }
+            }
+            this.getter = get.asType(MethodType.methodType(Object.class,Object.class));
+            this.setter = set == null ? null : set.asType(MethodType.methodType(void.class,Object.class,Object.class));
+            this.fallback = set == null ? new ReflectAccessor(field) : null;
+            if(type.isPrimitive()){
+                this.primitiveGetter = get.asType(MethodType.methodType(type,Object.class));
+                this.primitiveSetter = set == null ? null : set.asType(MethodType.methodType(void.class,Object.class,type));
+            }else{
+                this.primitiveGetter = null;
+                this.primitiveSetter = null;
+            }
+        }
+
+        @Override
+        Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void set(Object target, Object value) throws IllegalAccessException {
+            if(setter == null){
+                fallback.set(target,value);
+                return;
+            }
+            try {
+                setter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        int getInt(Object target) {
+            if(primitiveGetter == null){
+                return (Integer) get(target);
+            }
+            try {
+                return (int) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setInt(Object target, int value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        long getLong(Object target) {
+            if(primitiveGetter == null){
+                return (Long) get(target);
+            }
+            try {
+                return (long) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setLong(Object target, long value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        short getShort(Object target) {
+            if(primitiveGetter == null){
+                return (Short) get(target);
+            }
+            try {
+                return (short) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setShort(Object target, short value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        byte getByte(Object target) {
+            if(primitiveGetter == null){
+                return (Byte) get(target);
+            }
+            try {
+                return (byte) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setByte(Object target, byte value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        float getFloat(Object target) {
+            if(primitiveGetter == null){
+                return (Float) get(target);
+            }
+            try {
+                return (float) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setFloat(Object target, float value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        double getDouble(Object target) {
+            if(primitiveGetter == null){
+                return (Double) get(target);
+            }
+            try {
+                return (double) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setDouble(Object target, double value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        boolean getBoolean(Object target) {
+            if(primitiveGetter == null){
+                return (Boolean) get(target);
+            }
+            try {
+                return (boolean) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setBoolean(Object target, boolean value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        char getChar(Object target) {
+            if(primitiveGetter == null){
+                return (Character) get(target);
+            }
+            try {
+                return (char) primitiveGetter.invokeExact(target);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        @Override
+        void setChar(Object target, char value) throws IllegalAccessException {
+            if(primitiveSetter == null){
+                set(target,value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static final class ReflectAccessor extends FieldAccessor{
+        private final boolean primitive;
+
+        ReflectAccessor(Field field){
+            super(field);
+            this.primitive = field.getType().isPrimitive();
+        }
+
+        @Override
+        Object get(Object target) throws IllegalAccessException {
+            return field.get(target);
+        }
+
+        @Override
+        void set(Object target, Object value) throws IllegalAccessException {
+            field.set(target,value);
+        }
+
+        @Override
+        int getInt(Object target) throws IllegalAccessException {
+            return primitive ? field.getInt(target) : (Integer) field.get(target);
+        }
+
+        @Override
+        void setInt(Object target, int value) throws IllegalAccessException {
+            if(primitive){
+                field.setInt(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        long getLong(Object target) throws IllegalAccessException {
+            return primitive ? field.getLong(target) : (Long) field.get(target);
+        }
+
+        @Override
+        void setLong(Object target, long value) throws IllegalAccessException {
+            if(primitive){
+                field.setLong(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        short getShort(Object target) throws IllegalAccessException {
+            return primitive ? field.getShort(target) : (Short) field.get(target);
+        }
+
+        @Override
+        void setShort(Object target, short value) throws IllegalAccessException {
+            if(primitive){
+                field.setShort(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        byte getByte(Object target) throws IllegalAccessException {
+            return primitive ? field.getByte(target) : (Byte) field.get(target);
+        }
+
+        @Override
+        void setByte(Object target, byte value) throws IllegalAccessException {
+            if(primitive){
+                field.setByte(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        float getFloat(Object target) throws IllegalAccessException {
+            return primitive ? field.getFloat(target) : (Float) field.get(target);
+        }
+
+        @Override
+        void setFloat(Object target, float value) throws IllegalAccessException {
+            if(primitive){
+                field.setFloat(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        double getDouble(Object target) throws IllegalAccessException {
+            return primitive ? field.getDouble(target) : (Double) field.get(target);
+        }
+
+        @Override
+        void setDouble(Object target, double value) throws IllegalAccessException {
+            if(primitive){
+                field.setDouble(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        boolean getBoolean(Object target) throws IllegalAccessException {
+            return primitive ? field.getBoolean(target) : (Boolean) field.get(target);
+        }
+
+        @Override
+        void setBoolean(Object target, boolean value) throws IllegalAccessException {
+            if(primitive){
+                field.setBoolean(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+
+        @Override
+        char getChar(Object target) throws IllegalAccessException {
+            return primitive ? field.getChar(target) : (Character) field.get(target);
+        }
+
+        @Override
+        void setChar(Object target, char value) throws IllegalAccessException {
+            if(primitive){
+                field.setChar(target,value);
+            }else{
+                field.set(target,value);
+            }
+        }
+    }
+
+    /*
+     * Field handles only throw unchecked exceptions (mostly a null or mistyped target),
+     * which are passed through as they would be by {@link Field}.
+     */
+    static RuntimeException rethrow(Throwable e){
+        if(e instanceof RuntimeException){
+            return (RuntimeException) e;
+        }
+        if(e instanceof Error){
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
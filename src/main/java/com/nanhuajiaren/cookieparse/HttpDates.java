@@ -0,0 +1,268 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+
+/*
+ * HTTP dates, as used by the Expires attribute of Set-Cookie, without {@code SimpleDateFormat} or {@code java.time}.
+ * Formatting writes the RFC 1123 form ("Wed, 21 Oct 2015 07:28:00 GMT") and keeps the last result, so all
+ * cookies written within the same second share one String.
+ * Parsing follows the lenient algorithm of RFC 6265 section 5.1.1, which accepts every format browsers see in practice.
+ */
+public final class HttpDates {
+    private static final String[] DAYS = {"Thu","Fri","Sat","Sun","Mon","Tue","Wed"};
+    private static final String[] MONTHS = {"Jan","Feb","Mar","Apr","May","Jun","Jul","Aug","Sep","Oct","Nov","Dec"};
+    private static final int INVALID = -1;
+
+    /*
+     * The last formatted second. Replaced as a whole, so readers never see a second with the text of another.
+     */
+    private static volatile Formatted last = new Formatted(Long.MIN_VALUE,null);
+
+    private HttpDates(){}
+
+    /*
+     * Format a time in the RFC 1123 form, truncated to the second.
+     * Years before 1 or after 9999 are not supported.
+     * @param epochMillis Milliseconds since 1970-01-01T00:00:00Z.
+     */
+    public static String format(long epochMillis){
+        long second = Math.floorDiv(epochMillis,1000L);
+        Formatted formatted = last;
+        if(formatted.second == second){
+            return formatted.text;
+        }
+        String text = formatSecond(second);
+        last = new Formatted(second,text);
+        return text;
+    }
+
+    private static String formatSecond(long second){
+        long days = Math.floorDiv(second,86400L);
+        int secondOfDay = (int) Math.floorMod(second,86400L);
+        //Civil from days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = Math.floorDiv(z,146097L);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if(year < 1 || year > 9999){
+            throw new IllegalArgumentException("Year " + year + " can't be written as an HTTP date.");
+        }
+        char[] text = new char[29];
+        String dayName = DAYS[(int) Math.floorMod(days,7L)];
+        String monthName = MONTHS[month - 1];
+        text[0] = dayName.charAt(0);
+        text[1] = dayName.charAt(1);
+        text[2] = dayName.charAt(2);
+        text[3] = ',';
+        text[4] = ' ';
+        twoDigits(text,5,day);
+        text[7] = ' ';
+        text[8] = monthName.charAt(0);
+        text[9] = monthName.charAt(1);
+        text[10] = monthName.charAt(2);
+        text[11] = ' ';
+        twoDigits(text,12,(int) (year / 100));
+        twoDigits(text,14,(int) (year % 100));
+        text[16] = ' ';
+        twoDigits(text,17,secondOfDay / 3600);
+        text[19] = ':';
+        twoDigits(text,20,secondOfDay / 60 % 60);
+        text[22] = ':';
+        twoDigits(text,23,secondOfDay % 60);
+        text[25] = ' ';
+        text[26] = 'G';
+        text[27] = 'M';
+        text[28] = 'T';
+        return new String(text);
+    }
+
+    private static void twoDigits(char[] text,int offset,int value){
+        text[offset] = (char) ('0' + value / 10);
+        text[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /*
+     * Parse an HTTP date, like the Expires attribute of Set-Cookie.
+     * @return Milliseconds since 1970-01-01T00:00:00Z.
+     * @exception CookieSyntaxException When {@code text} is not a date RFC 6265 accepts.
+     */
+    public static long parse(@NotNull CharSequence text) throws CookieSyntaxException{
+        long millis = parse(text,0,text.length());
+        if(millis == Long.MIN_VALUE){
+            throw new CookieSyntaxException("Can't parse \"" + text + "\" as an HTTP date.");
+        }
+        return millis;
+    }
+
+    /*
+     * The algorithm of RFC 6265 section 5.1.1: the text is split into tokens on delimiters,
+     * and the first token looking like each of a time, a day of month, a month and a year is taken for it.
+     * @return Milliseconds since the epoch, or {@link Long#MIN_VALUE} if the range is not a valid date.
+     */
+    static long parse(CharSequence text,int start,int end){
+        int hour = INVALID,minute = INVALID,second = INVALID;
+        int day = INVALID,month = INVALID,year = INVALID;
+        int i = start;
+        while(i < end){
+            while(i < end && isDelimiter(text.charAt(i))){
+                i ++;
+            }
+            int tokenStart = i;
+            while(i < end && !isDelimiter(text.charAt(i))){
+                i ++;
+            }
+            if(tokenStart == i){
+                break;
+            }
+            if(hour == INVALID){
+                long time = parseTime(text,tokenStart,i);
+                if(time >= 0){
+                    hour = (int) (time >>> 16);
+                    minute = (int) (time >>> 8) & 0xff;
+                    second = (int) time & 0xff;
+                    continue;
+                }
+            }
+            if(day == INVALID){
+                int value = leadingDigits(text,tokenStart,i,1,2);
+                if(value >= 0){
+                    day = value;
+                    continue;
+                }
+            }
+            if(month == INVALID){
+                int value = parseMonth(text,tokenStart,i);
+                if(value >= 0){
+                    month = value;
+                    continue;
+                }
+            }
+            if(year == INVALID){
+                int value = leadingDigits(text,tokenStart,i,2,4);
+                if(value >= 0){
+                    year = value;
+                }
+            }
+        }
+        if(year >= 70 && year <= 99){
+            year += 1900;
+        }else if(year >= 0 && year <= 69){
+            year += 2000;
+        }
+        if(hour == INVALID || day == INVALID || month == INVALID || year == INVALID
+                || day < 1 || day > daysInMonth(year,month) || year < 1601 || hour > 23 || minute > 59 || second > 59){
+            return Long.MIN_VALUE;
+        }
+        return ((daysFromCivil(year,month,day) * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
+    /*
+     * delimiter = %x09 / %x20-2F / %x3B-40 / %x5B-60 / %x7B-7E
+     */
+    private static boolean isDelimiter(char c){
+        return c == 0x09 || (c >= 0x20 && c <= 0x2F) || (c >= 0x3B && c <= 0x40)
+                || (c >= 0x5B && c <= 0x60) || (c >= 0x7B && c <= 0x7E);
+    }
+
+    /*
+     * time = hms-time ( non-digit *OCTET ), hms-time = 1*2DIGIT ":" 1*2DIGIT ":" 1*2DIGIT
+     * @return hour << 16 | minute << 8 | second, or -1.
+     */
+    private static long parseTime(CharSequence text,int start,int end){
+        long time = 0;
+        int i = start;
+        for(int part = 0;part < 3;part ++){
+            int digitsStart = i;
+            int value = 0;
+            while(i < end && i - digitsStart < 2 && isDigit(text.charAt(i))){
+                value = value * 10 + text.charAt(i) - '0';
+                i ++;
+            }
+            if(i == digitsStart){
+                return -1;
+            }
+            time = time << 8 | value;
+            if(part < 2){
+                if(i == end || text.charAt(i) != ':'){
+                    return -1;
+                }
+                i ++;
+            }
+        }
+        return i == end || !isDigit(text.charAt(i)) ? time : -1;
+    }
+
+    /*
+     * min*maxDIGIT ( non-digit *OCTET )
+     * @return The value of the digits, or -1.
+     */
+    private static int leadingDigits(CharSequence text,int start,int end,int min,int max){
+        int value = 0;
+        int i = start;
+        while(i < end && isDigit(text.charAt(i))){
+            if(i - start == max){
+                return -1;
+            }
+            value = value * 10 + text.charAt(i) - '0';
+            i ++;
+        }
+        return i - start >= min ? value : -1;
+    }
+
+    /*
+     * month = ( "jan" / "feb" / ... ) *OCTET, case-insensitive.
+     * @return The month from 1 to 12, or -1.
+     */
+    private static int parseMonth(CharSequence text,int start,int end){
+        if(end - start < 3){
+            return -1;
+        }
+        for(int m = 0;m < 12;m ++){
+            String name = MONTHS[m];
+            if(Character.toLowerCase(text.charAt(start)) == Character.toLowerCase(name.charAt(0))
+                    && Character.toLowerCase(text.charAt(start + 1)) == name.charAt(1)
+                    && Character.toLowerCase(text.charAt(start + 2)) == name.charAt(2)){
+                return m + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c){
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year,int month){
+        if(month == 2){
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /*
+     * Days from civil, see http://howardhinnant.github.io/date_algorithms.html
+     */
+    private static long daysFromCivil(int year,int month,int day){
+        year -= month <= 2 ? 1 : 0;
+        int era = Math.floorDiv(year,400);
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static final class Formatted{
+        final long second;
+        final String text;
+
+        Formatted(long second,String text){
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
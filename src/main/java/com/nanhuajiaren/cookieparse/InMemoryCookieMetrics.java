@@ -0,0 +1,226 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * A {@link CookieListener} keeping counters and latency histograms in memory, to be scraped by a metrics exporter.
+ * Every counter is a {@link LongAdder}, so recording from many threads doesn't contend.
+ * Reading is not atomic across counters: a snapshot taken while parsing goes on may be slightly inconsistent.
+ */
+public final class InMemoryCookieMetrics implements CookieListener {
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bindingHits = new LongAdder();
+    private final LongAdder bindingMisses = new LongAdder();
+    private final Histogram parseLatency = new Histogram();
+    private final Histogram writeLatency = new Histogram();
+    private final ConcurrentHashMap<Class<?>,LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>,LongAdder> errorsByTarget = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>,LongAdder> parsesByTarget = new ConcurrentHashMap<>();
+
+    @Override
+    public void onParse(@Nullable Class<?> type, int inputLength, long nanos) {
+        parses.increment();
+        bytesIn.add(inputLength);
+        parseLatency.record(nanos);
+        if(type != null){
+            counter(parsesByTarget,type).increment();
+        }
+    }
+
+    @Override
+    public void onWrite(@Nullable Class<?> type, int outputLength, long nanos) {
+        writes.increment();
+        bytesOut.add(outputLength);
+        writeLatency.record(nanos);
+    }
+
+    @Override
+    public void onError(@Nullable Class<?> type, @NotNull Exception error) {
+        counter(errorsByType,error.getClass()).increment();
+        counter(errorsByTarget,type == null ? Map.class : type).increment();
+    }
+
+    @Override
+    public void onBindingLookup(@NotNull Class<?> type, boolean cached) {
+        (cached ? bindingHits : bindingMisses).increment();
+    }
+
+    private static LongAdder counter(ConcurrentHashMap<Class<?>,LongAdder> counters,Class<?> key){
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key,k -> new LongAdder());
+    }
+
+    public long getParseCount(){
+        return parses.sum();
+    }
+
+    public long getWriteCount(){
+        return writes.sum();
+    }
+
+    /*
+     * The total length of the parsed cookies.
+     */
+    public long getBytesIn(){
+        return bytesIn.sum();
+    }
+
+    /*
+     * The total length of the generated cookies.
+     */
+    public long getBytesOut(){
+        return bytesOut.sum();
+    }
+
+    public long getBindingHits(){
+        return bindingHits.sum();
+    }
+
+    public long getBindingMisses(){
+        return bindingMisses.sum();
+    }
+
+    public Histogram getParseLatency(){
+        return parseLatency;
+    }
+
+    public Histogram getWriteLatency(){
+        return writeLatency;
+    }
+
+    /*
+     * The failure count of parsing or generating, by the class of the exception thrown.
+     */
+    public Map<Class<?>,Long> getErrorsByType(){
+        return sums(errorsByType);
+    }
+
+    /*
+     * The failure count of parsing or generating, by the class parsed into or generated from
+     * ({@code Map.class} for maps).
+     */
+    public Map<Class<?>,Long> getErrorsByTarget(){
+        return sums(errorsByTarget);
+    }
+
+    /*
+     * The count of successful parsing into each class.
+     */
+    public Map<Class<?>,Long> getParsesByTarget(){
+        return sums(parsesByTarget);
+    }
+
+    public long getErrorCount(){
+        long count = 0;
+        for(LongAdder counter : errorsByType.values()){
+            count += counter.sum();
+        }
+        return count;
+    }
+
+    private static Map<Class<?>,Long> sums(ConcurrentHashMap<Class<?>,LongAdder> counters){
+        Map<Class<?>,Long> map = new HashMap<>();
+        counters.forEach((key,counter) -> map.put(key,counter.sum()));
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryCookieMetrics{parses=" + getParseCount() + ", writes=" + getWriteCount()
+                + ", bytesIn=" + getBytesIn() + ", bytesOut=" + getBytesOut()
+                + ", errors=" + getErrorsByType() + ", bindingHits=" + getBindingHits()
+                + ", bindingMisses=" + getBindingMisses()
+                + ", parseLatency=" + parseLatency + ", writeLatency=" + writeLatency + "}";
+    }
+
+    /*
+     * A latency histogram with power of two buckets: bucket {@code i} counts durations in {@code [2^(i-1), 2^i)} nanoseconds,
+     * and bucket 0 counts zero. So quantiles are exact up to a factor of two, which is plenty to spot a regression.
+     */
+    public static final class Histogram{
+        public static final int BUCKETS = 64;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder totalNanos = new LongAdder();
+
+        Histogram(){
+            for(int i = 0;i < BUCKETS;i ++){
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos){
+            if(nanos < 0){
+                nanos = 0;
+            }
+            buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+            totalNanos.add(nanos);
+        }
+
+        public long getCount(){
+            long count = 0;
+            for(LongAdder bucket : buckets){
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        public long getTotalNanos(){
+            return totalNanos.sum();
+        }
+
+        /*
+         * @return The count of durations in bucket {@code index}.
+         */
+        public long getBucketCount(int index){
+            return buckets[index].sum();
+        }
+
+        /*
+         * @return The exclusive upper bound of bucket {@code index} in nanoseconds.
+         */
+        public static long getBucketBound(int index){
+            return index >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << index;
+        }
+
+        /*
+         * @param quantile Between 0 and 1, like 0.99.
+         * @return The upper bound of the bucket holding the quantile, or 0 if nothing was recorded.
+         */
+        public long getQuantileBound(double quantile){
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for(int i = 0;i < BUCKETS;i ++){
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if(total == 0){
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for(int i = 0;i < BUCKETS;i ++){
+                seen += counts[i];
+                if(seen >= rank && seen > 0){
+                    return getBucketBound(i);
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + getCount() + ", p50<" + getQuantileBound(0.5) + "ns, p99<" + getQuantileBound(0.99) + "ns}";
+        }
+    }
+}
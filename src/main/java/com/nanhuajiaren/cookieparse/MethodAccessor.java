@@ -0,0 +1,106 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.annotations.DeserializeMethod;
+import com.nanhuajiaren.cookieparse.annotations.SerializeMethod;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/*
+ * Calls a {@link SerializeMethod} or a {@link DeserializeMethod}.
+ * Works through a {@link MethodHandle} and falls back to {@link Method#invoke} if no handle can be created.
+ * Exceptions thrown by the method itself are wrapped in {@link InvocationTargetException} in both cases.
+ */
+abstract class MethodAccessor{
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    final Method method;
+
+    MethodAccessor(Method method){
+        this.method = method;
+    }
+
+    static MethodAccessor of(Method method){
+        try {
+            method.setAccessible(true);
+        } catch (RuntimeException ignored) {
+            //Access will be checked again by the fallback accessor.
+        }
+        try {
+            return new HandleAccessor(method,LOOKUP.unreflect(method));
+        } catch (IllegalAccessException | RuntimeException e) {
+            return new ReflectAccessor(method);
+        }
+    }
+
+    /*
+     * Call a serialize method with the cookie value.
+     */
+    abstract void invokeSetter(Object target,String value) throws IllegalAccessException,InvocationTargetException;
+
+    /*
+     * Call a deserialize method and get the cookie value.
+     */
+    abstract String invokeGetter(Object target) throws IllegalAccessException,InvocationTargetException;
+
+    private static final class HandleAccessor extends MethodAccessor{
+        private final MethodHandle setter;
+        private final MethodHandle getter;
+
+        HandleAccessor(Method method,MethodHandle handle){
+            super(method);
+            if(method.getParameterCount() == 1){
+                this.setter = handle.asType(MethodType.methodType(void.class,Object.class,String.class));
+                this.getter = null;
+            }else{
+                this.setter = null;
+                this.getter = handle.asType(MethodType.methodType(String.class,Object.class));
+            }
+        }
+
+        @Override
+        void invokeSetter(Object target, String value) throws InvocationTargetException {
+            try {
+                setter.invokeExact(target,value);
+            } catch (Throwable e) {
+                throw wrap(e);
+            }
+        }
+
+        @Override
+        String invokeGetter(Object target) throws InvocationTargetException {
+            try {
+                return (String) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw wrap(e);
+            }
+        }
+
+        private static InvocationTargetException wrap(Throwable e){
+            if(e instanceof Error){
+                throw (Error) e;
+            }
+            return new InvocationTargetException(e);
+        }
+    }
+
+    private static final class ReflectAccessor extends MethodAccessor{
+
+        ReflectAccessor(Method method){
+            super(method);
+        }
+
+        @Override
+        void invokeSetter(Object target, String value) throws IllegalAccessException, InvocationTargetException {
+            method.invoke(target,value);
+        }
+
+        @Override
+        String invokeGetter(Object target) throws IllegalAccessException, InvocationTargetException {
+            return (String) method.invoke(target);
+        }
+    }
+}
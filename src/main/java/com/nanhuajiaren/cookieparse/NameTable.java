@@ -0,0 +1,86 @@
+package com.nanhuajiaren.cookieparse;
+
+/*
+ * An immutable open addressing table from names to their index, looked up straight from a range of a cookie,
+ * so a key does not have to be turned into a String to know whether it is wanted.
+ * The hash is the one of {@link String#hashCode()}, so it is computed in the same single pass over the key.
+ */
+final class NameTable{
+    private final String[] names;
+    private final int[] slots;
+    private final int mask;
+
+    /*
+     * @param names Distinct names. The index of a name in this array is what lookups return.
+     */
+    NameTable(String[] names){
+        this.names = names;
+        int capacity = Integer.highestOneBit(Math.max(names.length,1) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for(int i = 0;i < names.length;i ++){
+            int slot = spread(names[i].hashCode()) & mask;
+            while(slots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    int size(){
+        return names.length;
+    }
+
+    String name(int index){
+        return names[index];
+    }
+
+    /*
+     * @return The index of the name equal to {@code text[start,end)}, or -1 if there is none.
+     */
+    int indexOf(CharSequence text,int start,int end){
+        int hash = hash(text,start,end);
+        int length = end - start;
+        int slot = spread(hash) & mask;
+        int entry;
+        while((entry = slots[slot]) != 0){
+            String name = names[entry - 1];
+            if(name.length() == length && matches(name,text,start)){
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    int indexOf(String name){
+        return indexOf(name,0,name.length());
+    }
+
+    /*
+     * The same as {@code text.subSequence(start,end).toString().hashCode()}, without the String.
+     */
+    static int hash(CharSequence text,int start,int end){
+        int hash = 0;
+        for(int i = start;i < end;i ++){
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+
+    /*
+     * @return Whether {@code text} holds {@code name} at {@code start}. The length is not checked.
+     */
+    static boolean matches(String name,CharSequence text,int start){
+        for(int i = 0;i < name.length();i ++){
+            if(name.charAt(i) != text.charAt(start + i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int spread(int hash){
+        return hash ^ (hash >>> 16);
+    }
+}
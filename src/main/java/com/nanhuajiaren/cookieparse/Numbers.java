@@ -0,0 +1,244 @@
+package com.nanhuajiaren.cookieparse;
+
+import java.io.IOException;
+
+/*
+ * Number parsing and formatting straight from and into character ranges, without creating Strings.
+ * Parsing accepts the same text as the {@code parseXxx} methods of the wrapper classes
+ * (only ASCII digits for integers), and throws {@link NumberFormatException} the same way.
+ */
+final class Numbers{
+    /*
+     * Powers of ten that are exact as doubles and floats.
+     */
+    private static final double[] DOUBLE_POWERS = {
+            1e0,1e1,1e2,1e3,1e4,1e5,1e6,1e7,1e8,1e9,1e10,1e11,
+            1e12,1e13,1e14,1e15,1e16,1e17,1e18,1e19,1e20,1e21,1e22};
+    private static final float[] FLOAT_POWERS = {1e0f,1e1f,1e2f,1e3f,1e4f,1e5f,1e6f,1e7f,1e8f,1e9f,1e10f};
+    /*
+     * Mantissas up to this many digits are exact as doubles.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private Numbers(){}
+
+    static int parseInt(CharSequence text,int start,int end){
+        long value = parseLong(text,start,end);
+        if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE){
+            throw outOfRange(text,start,end);
+        }
+        return (int) value;
+    }
+
+    static short parseShort(CharSequence text,int start,int end){
+        long value = parseLong(text,start,end);
+        if(value < Short.MIN_VALUE || value > Short.MAX_VALUE){
+            throw outOfRange(text,start,end);
+        }
+        return (short) value;
+    }
+
+    static byte parseByte(CharSequence text,int start,int end){
+        long value = parseLong(text,start,end);
+        if(value < Byte.MIN_VALUE || value > Byte.MAX_VALUE){
+            throw outOfRange(text,start,end);
+        }
+        return (byte) value;
+    }
+
+    static long parseLong(CharSequence text,int start,int end){
+        int i = start;
+        boolean negative = false;
+        if(i < end){
+            char sign = text.charAt(i);
+            if(sign == '-' || sign == '+'){
+                negative = sign == '-';
+                i ++;
+            }
+        }
+        if(i == end){
+            throw invalid(text,start,end);
+        }
+        //Accumulate negatively, so Long.MIN_VALUE fits.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for(;i < end;i ++){
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9){
+                throw invalid(text,start,end);
+            }
+            if(value < limit / 10 || value * 10 < limit + digit){
+                throw outOfRange(text,start,end);
+            }
+            value = value * 10 - digit;
+        }
+        return negative ? value : -value;
+    }
+
+    static double parseDouble(CharSequence text,int start,int end){
+        double value = parseSimpleDouble(text,start,end,MAX_EXACT_DIGITS,DOUBLE_POWERS.length - 1);
+        if(value == value){
+            return value;
+        }
+        return Double.parseDouble(text.subSequence(start,end).toString());
+    }
+
+    static float parseFloat(CharSequence text,int start,int end){
+        //Mantissas of up to 7 digits are exact as floats.
+        double value = parseSimpleDouble(text,start,end,7,FLOAT_POWERS.length - 1);
+        if(value == value){
+            return (float) value;
+        }
+        return Float.parseFloat(text.subSequence(start,end).toString());
+    }
+
+    /*
+     * The fast path: plain decimals like "-12.5e3" whose mantissa and power of ten are both exact,
+     * so one correctly rounded multiplication or division gives the correctly rounded result.
+     * The float case does that arithmetic in float, so the result is exact once narrowed back.
+     * @return The value, or NaN if the text is not such a decimal and the slow path has to be used.
+     */
+    private static double parseSimpleDouble(CharSequence text,int start,int end,int maxDigits,int maxPower){
+        int i = start;
+        boolean negative = false;
+        if(i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')){
+            negative = text.charAt(i) == '-';
+            i ++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for(;i < end;i ++){
+            char c = text.charAt(i);
+            if(c >= '0' && c <= '9'){
+                seenDigit = true;
+                if(mantissa != 0 || c != '0'){
+                    if(++ digits > maxDigits){
+                        return Double.NaN;
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if(seenPoint){
+                    scale --;
+                }
+            }else if(c == '.' && !seenPoint){
+                seenPoint = true;
+            }else{
+                break;
+            }
+        }
+        if(!seenDigit){
+            return Double.NaN;
+        }
+        if(i < end){
+            char c = text.charAt(i);
+            if(c != 'e' && c != 'E'){
+                return Double.NaN;
+            }
+            i ++;
+            boolean negativeExponent = false;
+            if(i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')){
+                negativeExponent = text.charAt(i) == '-';
+                i ++;
+            }
+            if(i == end || end - i > 3){
+                return Double.NaN;
+            }
+            int exponent = 0;
+            for(;i < end;i ++){
+                int digit = text.charAt(i) - '0';
+                if(digit < 0 || digit > 9){
+                    return Double.NaN;
+                }
+                exponent = exponent * 10 + digit;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if(scale < -maxPower || scale > maxPower){
+            return mantissa == 0 ? (negative ? -0.0 : 0.0) : Double.NaN;
+        }
+        double value;
+        if(maxDigits == MAX_EXACT_DIGITS){
+            value = scale >= 0 ? mantissa * DOUBLE_POWERS[scale] : mantissa / DOUBLE_POWERS[-scale];
+        }else{
+            value = scale >= 0 ? (float) mantissa * FLOAT_POWERS[scale] : (float) mantissa / FLOAT_POWERS[-scale];
+        }
+        return negative ? -value : value;
+    }
+
+    /*
+     * Accepts "true" and "false" in any case.
+     */
+    static boolean parseBoolean(CharSequence text,int start,int end){
+        if(regionMatchesIgnoreCase(text,start,end,"true")){
+            return true;
+        }
+        if(regionMatchesIgnoreCase(text,start,end,"false")){
+            return false;
+        }
+        throw new NumberFormatException("For input string: \"" + text.subSequence(start,end) + "\"");
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence text,int start,int end,String expected){
+        if(end - start != expected.length()){
+            return false;
+        }
+        for(int i = 0;i < expected.length();i ++){
+            if(Character.toLowerCase(text.charAt(start + i)) != expected.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NumberFormatException invalid(CharSequence text,int start,int end){
+        return new NumberFormatException("For input string: \"" + text.subSequence(start,end) + "\"");
+    }
+
+    private static NumberFormatException outOfRange(CharSequence text,int start,int end){
+        return new NumberFormatException("Value out of range. Value:\"" + text.subSequence(start,end) + "\"");
+    }
+
+    /*
+     * Append the decimal form of {@code value}, same as {@link Long#toString(long)}.
+     */
+    static void append(Appendable out,long value) throws IOException{
+        if(out instanceof StringBuilder){
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        if(value < 0){
+            out.append('-');
+            if(value == Long.MIN_VALUE){
+                out.append("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        long divisor = 1;
+        while(divisor <= value / 10){
+            divisor *= 10;
+        }
+        for(;divisor > 0;divisor /= 10){
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    static void append(Appendable out,float value) throws IOException{
+        if(out instanceof StringBuilder){
+            ((StringBuilder) out).append(value);
+        }else{
+            out.append(Float.toString(value));
+        }
+    }
+
+    static void append(Appendable out,double value) throws IOException{
+        if(out instanceof StringBuilder){
+            ((StringBuilder) out).append(value);
+        }else{
+            out.append(Double.toString(value));
+        }
+    }
+}
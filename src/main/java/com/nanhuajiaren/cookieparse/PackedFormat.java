@@ -0,0 +1,499 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.annotations.PackedCookie;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * The layout of a {@link PackedCookie} class: a version byte, then the value of every write property in order.
+ * Every value delimits itself, so a cookie written with fewer properties simply ends early:
+ * <ul>
+ *     <li>Integers, shorts, bytes and chars are zigzag encoded variable length integers, 7 bits per byte.</li>
+ *     <li>Floats and doubles are their IEEE 754 bits, big endian.</li>
+ *     <li>Strings (and values of other types, formatted) are their UTF-8 length plus 1 as a variable length integer,
+ *     then the UTF-8 bytes. 0 stands for {@code null}.</li>
+ *     <li>Enums are their ordinal plus 1, 0 standing for {@code null}.</li>
+ *     <li>Other boxed values are preceded by a byte, 0 for {@code null} and 1 otherwise.
+ *     Booleans are a single byte: 0 or 1, and 2 for a boxed {@code true}.</li>
+ * </ul>
+ * The bytes are then written as URL-safe base64 without padding, which needs no escaping in a cookie.
+ */
+final class PackedFormat{
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] DIGITS = new byte[128];
+
+    static{
+        Arrays.fill(DIGITS,(byte) -1);
+        for(int i = 0;i < ALPHABET.length;i ++){
+            DIGITS[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    final String name;
+    /*
+     * "name=", ready to be written.
+     */
+    final String prefix;
+    private final int version;
+    private final ClassBinding.WriteProperty[] writes;
+    /*
+     * The read property the value of each write property is parsed into, or -1 if it is only skipped.
+     */
+    private final int[] reads;
+    private final int readCount;
+    /*
+     * The constants of each enum write property.
+     */
+    private final Object[][] constants;
+
+    PackedFormat(ClassBinding<?> binding,PackedCookie annotation){
+        if(annotation.value().isEmpty()){
+            throw new IllegalArgumentException("The packed cookie of " + binding.type.getName() + " has no name.");
+        }
+        if(annotation.version() < 0 || annotation.version() > 255){
+            throw new IllegalArgumentException("Version of the packed cookie of " + binding.type.getName() + " out of range: " + annotation.version());
+        }
+        this.name = annotation.value();
+        this.prefix = name + CookieTokenizer.OPERATOR;
+        this.version = annotation.version();
+        this.writes = binding.writeProperties.toArray(new ClassBinding.WriteProperty[0]);
+        this.reads = new int[writes.length];
+        this.constants = new Object[writes.length][];
+        this.readCount = binding.readNames.size();
+        for(int i = 0;i < writes.length;i ++){
+            ClassBinding.WriteProperty write = writes[i];
+            int read = binding.readNames.indexOf(write.name,0,write.name.length());
+            reads[i] = read >= 0 && compatible(write,binding.readProperty(read)) ? read : -1;
+            if(write.valueType == ClassBinding.ValueType.ENUM){
+                constants[i] = write.field.field.getType().getEnumConstants();
+            }
+        }
+    }
+
+    /*
+     * Whether a value written from {@code write} can be put into {@code read} as it is.
+     */
+    private static boolean compatible(ClassBinding.WriteProperty write,ClassBinding.ReadProperty read){
+        boolean text = write.field == null || write.valueType == ClassBinding.ValueType.STRING;
+        if(read.method != null){
+            return text;
+        }
+        return write.field == null ? read.valueType == ClassBinding.ValueType.STRING : read.type == write.field.field.getType();
+    }
+
+    /*
+     * Write "name=" and the packed values of {@code object}.
+     * @param converters The converters to format values of other types with.
+     */
+    void write(Map<Class<?>,ValueConverter<?>> converters,Object object,Appendable out) throws CookieReflectException,IOException{
+        Output output = new Output();
+        output.put(version);
+        for(ClassBinding.WriteProperty property : writes){
+            if(property.method != null){
+                try {
+                    output.putString(property.method.invokeGetter(object));
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new CookieReflectException("Can't invoke deserialize method.",e);
+                }
+                continue;
+            }
+            FieldAccessor field = property.field;
+            try {
+                if(property.primitive){
+                    switch (property.valueType){
+                        case INT:
+                            output.putZigzag(field.getInt(object));
+                            break;
+                        case LONG:
+                            output.putZigzag(field.getLong(object));
+                            break;
+                        case SHORT:
+                            output.putZigzag(field.getShort(object));
+                            break;
+                        case BYTE:
+                            output.putZigzag(field.getByte(object));
+                            break;
+                        case FLOAT:
+                            output.putBits(Float.floatToRawIntBits(field.getFloat(object)),4);
+                            break;
+                        case DOUBLE:
+                            output.putBits(Double.doubleToRawLongBits(field.getDouble(object)),8);
+                            break;
+                        case BOOLEAN:
+                            output.put(field.getBoolean(object) ? 1 : 0);
+                            break;
+                        case CHAR:
+                            output.putZigzag(field.getChar(object));
+                            break;
+                    }
+                    continue;
+                }
+                Object value = field.get(object);
+                switch (property.valueType){
+                    case STRING:
+                        output.putString((String) value);
+                        break;
+                    case ENUM:
+                        output.putVarint(value == null ? 0 : ((Enum<?>) value).ordinal() + 1);
+                        break;
+                    case CUSTOM:
+                        output.putString(value == null ? null : CookieParser.format(converters,property,value));
+                        break;
+                    case BOOLEAN:
+                        output.put(value == null ? 0 : (Boolean) value ? 2 : 1);
+                        break;
+                    default:
+                        if(value == null){
+                            output.put(0);
+                            break;
+                        }
+                        output.put(1);
+                        switch (property.valueType){
+                            case FLOAT:
+                                output.putBits(Float.floatToRawIntBits((Float) value),4);
+                                break;
+                            case DOUBLE:
+                                output.putBits(Double.doubleToRawLongBits((Double) value),8);
+                                break;
+                            case CHAR:
+                                output.putZigzag((Character) value);
+                                break;
+                            default:
+                                output.putZigzag(((Number) value).longValue());
+                                break;
+                        }
+                        break;
+                }
+            } catch (IllegalAccessException e) {
+                throw new CookieReflectException(
+                        "Can't access field \"" + field.field.getName() + "\" while deserializing.",e);
+            }
+        }
+        out.append(prefix);
+        output.writeBase64(out);
+    }
+
+    /*
+     * Whether {@code cookie[keyStart,keyEnd)} is the packed key.
+     */
+    boolean matches(CharSequence cookie,int keyStart,int keyEnd){
+        return keyEnd - keyStart == name.length() && NameTable.matches(name,cookie,keyStart);
+    }
+
+    /*
+     * Decode the packed value {@code text[start,end)}.
+     * @return The decoded values by read property index, {@code null} for values that are missing or {@code null}.
+     */
+    Object[] read(Map<Class<?>,ValueConverter<?>> converters,CharSequence text,int start,int end) throws CookieSyntaxException{
+        Input input = new Input(decodeBase64(text,start,end));
+        int written = input.get();
+        if(written > version){
+            throw new CookieSyntaxException(
+                    "Packed cookie \"" + name + "\" has version " + written + ", but only version " + version + " is known.");
+        }
+        Object[] values = new Object[readCount];
+        for(int i = 0;i < writes.length && input.remaining();i ++){
+            ClassBinding.WriteProperty property = writes[i];
+            Object value;
+            if(property.method != null){
+                value = input.getString();
+            }else if(property.primitive){
+                value = getPrimitive(input,property.valueType);
+            }else{
+                switch (property.valueType){
+                    case STRING:
+                        value = input.getString();
+                        break;
+                    case ENUM:
+                        //Compared unsigned before narrowing, so an ordinal with the high bits set is rejected too.
+                        long ordinal = input.getVarint();
+                        if(Long.compareUnsigned(ordinal,constants[i].length) > 0){
+                            throw new CookieSyntaxException("No constant of " + property.field.field.getType().getName()
+                                    + " at " + Long.toUnsignedString(ordinal - 1) + " in packed cookie \"" + name + "\".");
+                        }
+                        value = ordinal == 0 ? null : constants[i][(int) ordinal - 1];
+                        break;
+                    case CUSTOM:
+                        String formatted = input.getString();
+                        ValueConverter<?> converter = converters.get(property.field.field.getType());
+                        value = formatted == null || converter == null || reads[i] < 0 ? null : convert(converter,property,formatted,start);
+                        break;
+                    case BOOLEAN:
+                        int b = input.get();
+                        value = b == 0 ? null : b == 2;
+                        break;
+                    default:
+                        value = input.get() == 0 ? null : getPrimitive(input,property.valueType);
+                        break;
+                }
+            }
+            if(reads[i] >= 0){
+                values[reads[i]] = value;
+            }
+        }
+        return values;
+    }
+
+    /*
+     * Run a {@link ValueConverter}, turning anything it throws unchecked into a {@link CookieSyntaxException}.
+     * @param position Where the packed value starts in the cookie.
+     */
+    private Object convert(ValueConverter<?> converter,ClassBinding.WriteProperty property,String formatted,int position) throws CookieSyntaxException{
+        try {
+            return converter.parse(formatted,0,formatted.length());
+        } catch (RuntimeException e) {
+            CookieSyntaxException error = new CookieSyntaxException("Can't convert value \"" + formatted + "\" to "
+                    + property.field.field.getType().getName() + " in packed cookie \"" + name + "\".",position);
+            error.initCause(e);
+            throw error;
+        }
+    }
+
+    private Object getPrimitive(Input input,ClassBinding.ValueType type) throws CookieSyntaxException{
+        switch (type){
+            case INT:
+                return (int) input.getZigzag();
+            case LONG:
+                return input.getZigzag();
+            case SHORT:
+                return (short) input.getZigzag();
+            case BYTE:
+                return (byte) input.getZigzag();
+            case FLOAT:
+                return Float.intBitsToFloat((int) input.getBits(4));
+            case DOUBLE:
+                return Double.longBitsToDouble(input.getBits(8));
+            case BOOLEAN:
+                return input.get() != 0;
+            default:
+                return (char) input.getZigzag();
+        }
+    }
+
+    private byte[] decodeBase64(CharSequence text,int start,int end) throws CookieSyntaxException{
+        int length = end - start;
+        if(length % 4 == 1){
+            throw new CookieSyntaxException("Packed cookie \"" + name + "\" is not valid base64.");
+        }
+        byte[] bytes = new byte[length / 4 * 3 + Math.max(0,length % 4 - 1)];
+        int bits = 0;
+        int count = 0;
+        int position = 0;
+        for(int i = start;i < end;i ++){
+            char c = text.charAt(i);
+            int digit = c < 128 ? DIGITS[c] : -1;
+            if(digit < 0){
+                throw new CookieSyntaxException("Packed cookie \"" + name + "\" is not valid base64.",i);
+            }
+            bits = bits << 6 | digit;
+            count += 6;
+            if(count >= 8){
+                count -= 8;
+                bytes[position ++] = (byte) (bits >> count);
+            }
+        }
+        return bytes;
+    }
+
+    /*
+     * A growable byte buffer.
+     */
+    private static final class Output{
+        private byte[] bytes = new byte[64];
+        private int size;
+
+        private void ensure(int more){
+            if(size + more > bytes.length){
+                bytes = Arrays.copyOf(bytes,Math.max(bytes.length * 2,size + more));
+            }
+        }
+
+        void put(int b){
+            ensure(1);
+            bytes[size ++] = (byte) b;
+        }
+
+        void putVarint(long value){
+            ensure(10);
+            while((value & ~0x7FL) != 0){
+                bytes[size ++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[size ++] = (byte) value;
+        }
+
+        void putZigzag(long value){
+            putVarint(value << 1 ^ value >> 63);
+        }
+
+        void putBits(long bits,int count){
+            ensure(count);
+            for(int shift = (count - 1) * 8;shift >= 0;shift -= 8){
+                bytes[size ++] = (byte) (bits >>> shift);
+            }
+        }
+
+        /*
+         * UTF-8, with unpaired surrogates encoded like other chars so every String comes back as it was.
+         */
+        void putString(String value){
+            if(value == null){
+                put(0);
+                return;
+            }
+            int length = value.length();
+            int utf8 = 0;
+            for(int i = 0;i < length;i ++){
+                char c = value.charAt(i);
+                if(c < 0x80){
+                    utf8 ++;
+                }else if(c < 0x800){
+                    utf8 += 2;
+                }else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+                    utf8 += 4;
+                    i ++;
+                }else{
+                    utf8 += 3;
+                }
+            }
+            putVarint(utf8 + 1L);
+            ensure(utf8);
+            for(int i = 0;i < length;i ++){
+                char c = value.charAt(i);
+                if(c < 0x80){
+                    bytes[size ++] = (byte) c;
+                }else if(c < 0x800){
+                    bytes[size ++] = (byte) (0xC0 | c >> 6);
+                    bytes[size ++] = (byte) (0x80 | c & 0x3F);
+                }else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))){
+                    int codePoint = Character.toCodePoint(c,value.charAt(++ i));
+                    bytes[size ++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[size ++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[size ++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[size ++] = (byte) (0x80 | codePoint & 0x3F);
+                }else{
+                    bytes[size ++] = (byte) (0xE0 | c >> 12);
+                    bytes[size ++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[size ++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        void writeBase64(Appendable out) throws IOException{
+            int i = 0;
+            for(;i + 3 <= size;i += 3){
+                int bits = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | bytes[i + 2] & 0xFF;
+                out.append(ALPHABET[bits >>> 18]).append(ALPHABET[bits >>> 12 & 0x3F])
+                        .append(ALPHABET[bits >>> 6 & 0x3F]).append(ALPHABET[bits & 0x3F]);
+            }
+            if(size - i == 1){
+                int bits = bytes[i] & 0xFF;
+                out.append(ALPHABET[bits >>> 2]).append(ALPHABET[bits << 4 & 0x3F]);
+            }else if(size - i == 2){
+                int bits = (bytes[i] & 0xFF) << 8 | bytes[i + 1] & 0xFF;
+                out.append(ALPHABET[bits >>> 10]).append(ALPHABET[bits >>> 4 & 0x3F]).append(ALPHABET[bits << 2 & 0x3F]);
+            }
+        }
+    }
+
+    private final class Input{
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes){
+            this.bytes = bytes;
+        }
+
+        boolean remaining(){
+            return position < bytes.length;
+        }
+
+        int get() throws CookieSyntaxException{
+            if(position >= bytes.length){
+                throw truncated();
+            }
+            return bytes[position ++] & 0xFF;
+        }
+
+        long getVarint() throws CookieSyntaxException{
+            long value = 0;
+            for(int shift = 0;shift < 64;shift += 7){
+                int b = get();
+                value |= (long) (b & 0x7F) << shift;
+                if(b < 0x80){
+                    return value;
+                }
+            }
+            throw new CookieSyntaxException("Packed cookie \"" + name + "\" has a number that is too long.");
+        }
+
+        long getZigzag() throws CookieSyntaxException{
+            long value = getVarint();
+            return value >>> 1 ^ -(value & 1);
+        }
+
+        long getBits(int count) throws CookieSyntaxException{
+            long bits = 0;
+            for(int i = 0;i < count;i ++){
+                bits = bits << 8 | get();
+            }
+            return bits;
+        }
+
+        String getString() throws CookieSyntaxException{
+            long header = getVarint();
+            if(header == 0){
+                return null;
+            }
+            //Compared unsigned, so a length that overflows into the sign bit is rejected too.
+            if(Long.compareUnsigned(header - 1,bytes.length - position) > 0){
+                throw truncated();
+            }
+            int end = position + (int) (header - 1);
+            char[] chars = new char[end - position];
+            int length = 0;
+            while(position < end){
+                int b = bytes[position ++] & 0xFF;
+                if(b < 0x80){
+                    chars[length ++] = (char) b;
+                }else if(b >= 0xC0 && b < 0xE0){
+                    chars[length ++] = (char) ((b & 0x1F) << 6 | continuation(end));
+                }else if(b >= 0xE0 && b < 0xF0){
+                    chars[length ++] = (char) ((b & 0x0F) << 12 | continuation(end) << 6 | continuation(end));
+                }else if(b >= 0xF0 && b < 0xF8){
+                    int codePoint = (b & 0x07) << 18 | continuation(end) << 12 | continuation(end) << 6 | continuation(end);
+                    if(codePoint > Character.MAX_CODE_POINT){
+                        throw malformed();
+                    }
+                    chars[length ++] = Character.highSurrogate(codePoint);
+                    chars[length ++] = Character.lowSurrogate(codePoint);
+                }else{
+                    throw malformed();
+                }
+            }
+            return new String(chars,0,length);
+        }
+
+        private int continuation(int end) throws CookieSyntaxException{
+            if(position >= end){
+                throw malformed();
+            }
+            int b = bytes[position ++] & 0xFF;
+            if((b & 0xC0) != 0x80){
+                throw malformed();
+            }
+            return b & 0x3F;
+        }
+
+        private CookieSyntaxException truncated(){
+            return new CookieSyntaxException("Packed cookie \"" + name + "\" ends in the middle of a value.");
+        }
+
+        private CookieSyntaxException malformed(){
+            return new CookieSyntaxException("Packed cookie \"" + name + "\" contains malformed UTF-8.");
+        }
+    }
+}
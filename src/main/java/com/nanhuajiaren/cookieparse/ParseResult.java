@@ -0,0 +1,47 @@
+package com.nanhuajiaren.cookieparse;
+
+/*
+ * The result of parsing one cookie of a batch, see {@link CookieParser#parseAll(java.util.List, Class)}.
+ * Holds either the parsed object or the exception that was thrown while parsing it.
+ */
+public final class ParseResult<T>{
+    private final long index;
+    private final T value;
+    private final Exception error;
+
+    ParseResult(long index,T value,Exception error){
+        this.index = index;
+        this.value = value;
+        this.error = error;
+    }
+
+    /*
+     * @return The position of the cookie in the batch, or -1 if the source does not know its size.
+     */
+    public long getIndex(){
+        return index;
+    }
+
+    public boolean isSuccess(){
+        return error == null;
+    }
+
+    /*
+     * @return The parsed object, or {@code null} if parsing failed.
+     */
+    public T getValue(){
+        return value;
+    }
+
+    /*
+     * @return A {@link CookieSyntaxException} or a {@link CookieReflectException}, or {@code null} if parsing succeeded.
+     */
+    public Exception getError(){
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "ParseResult{index=" + index + (error == null ? ", value=" + value : ", error=" + error) + "}";
+    }
+}
@@ -0,0 +1,384 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.annotations.CookieAttributes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/*
+ * One cookie of a Set-Cookie response header, with its attributes.
+ * Parse one with {@link CookieParser#parseSetCookie(String)} and write one with {@link CookieParser#toSetCookie(SetCookie)}.
+ * Instances are immutable, use {@link #builder(String, String)} or {@link #toBuilder()} to make one.
+ */
+public final class SetCookie {
+    /*
+     * The value of {@link #getExpires()} and {@link #getMaxAge()} when the attribute is absent.
+     */
+    public static final long UNSET = Long.MIN_VALUE;
+
+    public enum SameSite{
+        STRICT("Strict"),LAX("Lax"),NONE("None");
+
+        private final String text;
+
+        SameSite(String text){
+            this.text = text;
+        }
+
+        /*
+         * @return The value as written in the header.
+         */
+        public String text(){
+            return text;
+        }
+
+        /*
+         * @return The constant of {@code text[start,end)} ignoring case, or {@code null} if there is none.
+         */
+        static SameSite of(CharSequence text,int start,int end){
+            for(SameSite sameSite : values()){
+                if(regionEqualsIgnoreCase(text,start,end,sameSite.text)){
+                    return sameSite;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String name;
+    private final String value;
+    private final long expires;
+    private final long maxAge;
+    private final String domain;
+    private final String path;
+    private final boolean secure;
+    private final boolean httpOnly;
+    private final SameSite sameSite;
+
+    private SetCookie(Builder builder){
+        this.name = builder.name;
+        this.value = builder.value;
+        this.expires = builder.expires;
+        this.maxAge = builder.maxAge;
+        this.domain = builder.domain;
+        this.path = builder.path;
+        this.secure = builder.secure;
+        this.httpOnly = builder.httpOnly;
+        this.sameSite = builder.sameSite;
+    }
+
+    public static Builder builder(@NotNull String name,@NotNull String value){
+        return new Builder(name,value);
+    }
+
+    public Builder toBuilder(){
+        return new Builder(this);
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    /*
+     * @return The unescaped value.
+     */
+    public String getValue(){
+        return value;
+    }
+
+    /*
+     * @return The Expires attribute in milliseconds since the epoch, or {@link #UNSET}.
+     */
+    public long getExpires(){
+        return expires;
+    }
+
+    /*
+     * @return The Max-Age attribute in seconds, or {@link #UNSET}.
+     */
+    public long getMaxAge(){
+        return maxAge;
+    }
+
+    @Nullable
+    public String getDomain(){
+        return domain;
+    }
+
+    @Nullable
+    public String getPath(){
+        return path;
+    }
+
+    public boolean isSecure(){
+        return secure;
+    }
+
+    public boolean isHttpOnly(){
+        return httpOnly;
+    }
+
+    @Nullable
+    public SameSite getSameSite(){
+        return sameSite;
+    }
+
+    /*
+     * Write "; Attribute=value" for every attribute that is set, in the usual order.
+     */
+    void writeAttributes(Appendable out) throws IOException{
+        if(expires != UNSET){
+            out.append("; Expires=").append(HttpDates.format(expires));
+        }
+        if(maxAge != UNSET){
+            out.append("; Max-Age=");
+            Numbers.append(out,maxAge);
+        }
+        if(domain != null){
+            out.append("; Domain=").append(domain);
+        }
+        if(path != null){
+            out.append("; Path=").append(path);
+        }
+        if(secure){
+            out.append("; Secure");
+        }
+        if(httpOnly){
+            out.append("; HttpOnly");
+        }
+        if(sameSite != null){
+            out.append("; SameSite=").append(sameSite.text);
+        }
+    }
+
+    /*
+     * Parse a Set-Cookie header value following RFC 6265 section 5.2:
+     * attributes are matched ignoring case, unknown ones and ones with invalid values are ignored,
+     * and a later attribute replaces an earlier one.
+     * Only the name and the value and the attributes kept are turned into Strings.
+     * @exception CookieSyntaxException When the header is blank or its first pair contains no '='.
+     */
+    static SetCookie parse(CharSequence header,TextEncoder encoder) throws CookieSyntaxException{
+        int end = header.length();
+        int pairEnd = indexOf(header,CookieTokenizer.SEPARATOR,0,end);
+        int operator = indexOf(header,CookieTokenizer.OPERATOR,0,pairEnd);
+        int nameStart = trimStart(header,0,pairEnd);
+        if(nameStart == pairEnd){
+            throw new CookieSyntaxException("No input to process.");
+        }
+        if(operator == pairEnd){
+            throw new CookieSyntaxException("Missing '" + CookieTokenizer.OPERATOR + "' in the cookie pair.",nameStart);
+        }
+        int valueStart = trimStart(header,operator + 1,pairEnd);
+        Builder builder = new Builder(
+                header.subSequence(nameStart,trimEnd(header,nameStart,operator)).toString(),
+                CookieParser.unescape(encoder,header,valueStart,trimEnd(header,valueStart,pairEnd),null));
+        int i = pairEnd;
+        while(i < end){
+            int attributeStart = trimStart(header,i + 1,end);
+            int attributeEnd = indexOf(header,CookieTokenizer.SEPARATOR,attributeStart,end);
+            int attributeOperator = indexOf(header,CookieTokenizer.OPERATOR,attributeStart,attributeEnd);
+            int nameEnd = trimEnd(header,attributeStart,attributeOperator);
+            int start = attributeOperator < attributeEnd ? trimStart(header,attributeOperator + 1,attributeEnd) : attributeEnd;
+            int stop = trimEnd(header,start,attributeEnd);
+            builder.attribute(header,attributeStart,nameEnd,start,stop);
+            i = attributeEnd;
+        }
+        return builder.build();
+    }
+
+    private static int indexOf(CharSequence text,char c,int start,int end){
+        for(int i = start;i < end;i ++){
+            if(text.charAt(i) == c){
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static int trimStart(CharSequence text,int from,int to){
+        while(from < to && text.charAt(from) <= ' '){
+            from ++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence text,int from,int to){
+        while(to > from && text.charAt(to - 1) <= ' '){
+            to --;
+        }
+        return to;
+    }
+
+    private static boolean regionEqualsIgnoreCase(CharSequence text,int start,int end,String expected){
+        if(end - start != expected.length()){
+            return false;
+        }
+        for(int i = 0;i < expected.length();i ++){
+            char a = text.charAt(start + i);
+            char b = expected.charAt(i);
+            if(a != b && Character.toLowerCase(a) != Character.toLowerCase(b)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name).append('=').append(value);
+        try {
+            writeAttributes(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    public static final class Builder{
+        private String name;
+        private String value;
+        private long expires = UNSET;
+        private long maxAge = UNSET;
+        private String domain;
+        private String path;
+        private boolean secure;
+        private boolean httpOnly;
+        private SameSite sameSite;
+
+        private Builder(String name,String value){
+            this.name = name;
+            this.value = value;
+        }
+
+        private Builder(SetCookie cookie){
+            this.name = cookie.name;
+            this.value = cookie.value;
+            this.expires = cookie.expires;
+            this.maxAge = cookie.maxAge;
+            this.domain = cookie.domain;
+            this.path = cookie.path;
+            this.secure = cookie.secure;
+            this.httpOnly = cookie.httpOnly;
+            this.sameSite = cookie.sameSite;
+        }
+
+        /*
+         * Take the attributes set by an annotation. The name and value are kept.
+         */
+        Builder attributes(CookieAttributes attributes){
+            if(attributes.maxAge() != CookieAttributes.UNSET){
+                maxAge = attributes.maxAge();
+            }
+            domain = attributes.domain().isEmpty() ? null : attributes.domain();
+            path = attributes.path().isEmpty() ? null : attributes.path();
+            secure = attributes.secure();
+            httpOnly = attributes.httpOnly();
+            if(!attributes.sameSite().isEmpty()){
+                sameSite = SameSite.of(attributes.sameSite(),0,attributes.sameSite().length());
+                if(sameSite == null){
+                    throw new IllegalArgumentException("Unknown SameSite value \"" + attributes.sameSite() + "\".");
+                }
+            }
+            return this;
+        }
+
+        /*
+         * Apply a parsed attribute. Names and values are ranges of {@code header}.
+         */
+        private void attribute(CharSequence header,int nameStart,int nameEnd,int valueStart,int valueEnd){
+            if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"Expires")){
+                long time = HttpDates.parse(header,valueStart,valueEnd);
+                if(time != Long.MIN_VALUE){
+                    expires = time;
+                }
+            }else if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"Max-Age")){
+                //Max-Age must start with a digit or '-', and a '+' is not allowed.
+                if(valueStart < valueEnd && header.charAt(valueStart) != '+'){
+                    try {
+                        maxAge = Numbers.parseLong(header,valueStart,valueEnd);
+                    } catch (NumberFormatException e) {
+                        //Out of range or not a number: ignored, like browsers do.
+                    }
+                }
+            }else if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"Domain")){
+                if(valueStart < valueEnd){
+                    int start = header.charAt(valueStart) == '.' ? valueStart + 1 : valueStart;
+                    domain = header.subSequence(start,valueEnd).toString().toLowerCase(Locale.ROOT);
+                }
+            }else if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"Path")){
+                path = valueStart < valueEnd && header.charAt(valueStart) == '/'
+                        ? header.subSequence(valueStart,valueEnd).toString() : null;
+            }else if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"Secure")){
+                secure = true;
+            }else if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"HttpOnly")){
+                httpOnly = true;
+            }else if(regionEqualsIgnoreCase(header,nameStart,nameEnd,"SameSite")){
+                SameSite parsed = SameSite.of(header,valueStart,valueEnd);
+                if(parsed != null){
+                    sameSite = parsed;
+                }
+            }
+        }
+
+        public Builder name(@NotNull String name){
+            this.name = name;
+            return this;
+        }
+
+        /*
+         * @param value The unescaped value.
+         */
+        public Builder value(@NotNull String value){
+            this.value = value;
+            return this;
+        }
+
+        /*
+         * @param epochMillis Milliseconds since the epoch, or {@link #UNSET}. Only whole seconds are written.
+         */
+        public Builder expires(long epochMillis){
+            this.expires = epochMillis;
+            return this;
+        }
+
+        /*
+         * @param seconds Seconds until the cookie expires (0 or less deletes it), or {@link #UNSET}.
+         */
+        public Builder maxAge(long seconds){
+            this.maxAge = seconds;
+            return this;
+        }
+
+        public Builder domain(@Nullable String domain){
+            this.domain = domain;
+            return this;
+        }
+
+        public Builder path(@Nullable String path){
+            this.path = path;
+            return this;
+        }
+
+        public Builder secure(boolean secure){
+            this.secure = secure;
+            return this;
+        }
+
+        public Builder httpOnly(boolean httpOnly){
+            this.httpOnly = httpOnly;
+            return this;
+        }
+
+        public Builder sameSite(@Nullable SameSite sameSite){
+            this.sameSite = sameSite;
+            return this;
+        }
+
+        public SetCookie build(){
+            return new SetCookie(this);
+        }
+    }
+}
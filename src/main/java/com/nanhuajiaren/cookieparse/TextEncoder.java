@@ -2,8 +2,14 @@ package com.nanhuajiaren.cookieparse;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+
 /*
  * The interface that can be used to change the default escape behavior.
+ *
+ * Only the two String methods have to be implemented. The parser calls the range methods below,
+ * which by default go through the String methods; an encoder overriding them works on the cookie itself
+ * and writes into the parser's buffers, so no String is made for a value that needs no work.
  */
 public interface TextEncoder {
     /*
@@ -20,4 +26,36 @@ public interface TextEncoder {
      * @return Processed text.
      */
     String unescape(@NotNull String encoded);
+
+    /*
+     * Escape {@code text[start,end)} into {@code out}, the same way as {@link #escape(String)}.
+     * By default calls {@link #escape(String)} with the range.
+     */
+    default void escape(@NotNull CharSequence text,int start,int end,@NotNull Appendable out) throws IOException{
+        out.append(escape(text.subSequence(start,end).toString()));
+    }
+
+    /*
+     * Unescape {@code text[start,end)} into {@code out}, the same way as {@link #unescape(String)}.
+     * By default calls {@link #unescape(String)} with the range.
+     */
+    default void unescape(@NotNull CharSequence text,int start,int end,@NotNull Appendable out) throws IOException{
+        out.append(unescape(text.subSequence(start,end).toString()));
+    }
+
+    /*
+     * @return {@code false} only if escaping {@code text[start,end)} would leave it as it is, so it can be written directly.
+     * {@code true} by default.
+     */
+    default boolean needsEscape(@NotNull CharSequence text,int start,int end){
+        return true;
+    }
+
+    /*
+     * @return {@code false} only if unescaping {@code text[start,end)} would leave it as it is,
+     * so it can be used directly, for example by parsing a number in place. {@code true} by default.
+     */
+    default boolean needsUnescape(@NotNull CharSequence text,int start,int end){
+        return true;
+    }
 }
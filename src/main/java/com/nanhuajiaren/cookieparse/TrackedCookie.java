@@ -0,0 +1,71 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+
+/*
+ * An object bound from a cookie, together with the pairs it would have been written as right after binding.
+ * Get one from {@link CookieParser#fromCookieTracked(String, Class)} or {@link CookieParser#track(Object)},
+ * change the object, then let {@link CookieParser#toChangedCookie(TrackedCookie)} or {@link CookieParser#toChangedSetCookies(TrackedCookie)}
+ * write only the keys whose value changed.
+ *
+ * The snapshot is a single String of the pairs with the bounds of each key, so keeping one costs about as much as the cookie itself.
+ * It never changes: track the object again once the changes have been sent.
+ */
+public final class TrackedCookie<T> {
+    private final T object;
+    final ClassBinding<T> binding;
+    /*
+     * The pairs "key=value" written right after binding, one after another without separators.
+     */
+    private final String snapshot;
+    /*
+     * The start and end of the pair of each property of {@link ClassBinding#writeProperties} in {@link #snapshot},
+     * or -1 if the value was {@code null}.
+     */
+    private final int[] bounds;
+
+    TrackedCookie(T object,ClassBinding<T> binding,String snapshot,int[] bounds){
+        this.object = object;
+        this.binding = binding;
+        this.snapshot = snapshot;
+        this.bounds = bounds;
+    }
+
+    /*
+     * @return The tracked object, to read and change.
+     */
+    @NotNull
+    public T get(){
+        return object;
+    }
+
+    /*
+     * @return The length of the pairs written when tracked.
+     */
+    int snapshotLength(){
+        return snapshot.length();
+    }
+
+    /*
+     * @return Whether the property had a value when tracked.
+     */
+    boolean hadValue(int index){
+        return bounds[index * 2] >= 0;
+    }
+
+    /*
+     * @return Whether the property had a value when tracked, and the pair was exactly {@code pair}.
+     */
+    boolean isUnchanged(int index,CharSequence pair){
+        int start = bounds[index * 2];
+        if(start < 0 || bounds[index * 2 + 1] - start != pair.length()){
+            return false;
+        }
+        for(int i = 0;i < pair.length();i ++){
+            if(snapshot.charAt(start + i) != pair.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+}
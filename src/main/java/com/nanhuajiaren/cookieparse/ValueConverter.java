@@ -0,0 +1,25 @@
+package com.nanhuajiaren.cookieparse;
+
+import org.jetbrains.annotations.NotNull;
+
+/*
+ * Converts a cookie value to and from a field type that is not built in.
+ * Register one with {@link CookieParser#registerConverter(Class, ValueConverter)}.
+ *
+ * Built in types, which can't be replaced: {@code String}, all primitive types and their wrappers, and enums.
+ */
+public interface ValueConverter<T> {
+    /*
+     * Parse the unescaped cookie value {@code text[start,end)}.
+     * The range may point into the whole cookie, so only read inside it and don't keep {@code text}.
+     * @exception CookieSyntaxException When the value can't be parsed.
+     */
+    T parse(@NotNull CharSequence text,int start,int end) throws CookieSyntaxException;
+
+    /*
+     * Turn a non-null value into the cookie value. It will be escaped afterwards.
+     */
+    default String format(@NotNull T value){
+        return value.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.nanhuajiaren.cookieparse.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * The attributes of the Set-Cookie headers generated from a class with {@code CookieParser.toSetCookies(Object)}.
+ * Every cookie of the class gets the same attributes. Empty strings and {@link #UNSET} mean the attribute is not written.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Target({ElementType.TYPE})
+public @interface CookieAttributes {
+    long UNSET = Long.MIN_VALUE;
+
+    String domain() default "";
+
+    String path() default "";
+
+    /*
+     * Seconds until the cookies expire. 0 or less deletes them.
+     */
+    long maxAge() default UNSET;
+
+    /*
+     * Also write an Expires attribute computed from {@link #maxAge()}, for clients that don't know Max-Age.
+     */
+    boolean expires() default false;
+
+    boolean secure() default false;
+
+    boolean httpOnly() default false;
+
+    /*
+     * "Strict", "Lax" or "None", ignoring case.
+     */
+    String sameSite() default "";
+}
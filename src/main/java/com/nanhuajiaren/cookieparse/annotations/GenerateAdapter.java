@@ -0,0 +1,18 @@
+package com.nanhuajiaren.cookieparse.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Use on a class to let the CookieParse annotation processor generate a {@code CookieAdapter} for it at compile time.
+ * The parser picks the generated adapter up automatically and falls back to reflection if there is none.
+ * Note that no adapter can be generated if a bound field or method is private.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Documented
+@Target({ElementType.TYPE})
+public @interface GenerateAdapter {
+}
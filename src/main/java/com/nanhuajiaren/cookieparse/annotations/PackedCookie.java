@@ -0,0 +1,32 @@
+package com.nanhuajiaren.cookieparse.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Use on a class to write all of its keys into a single cookie instead of one cookie per key.
+ * The values are written one after another in the order the keys are generated, without their names:
+ * numbers as variable length integers, text as UTF-8, and the whole as URL-safe base64 after a version byte.
+ *
+ * As values are found by position, only append fields (and enum constants) to such a class, and raise {@link #version()} when doing so.
+ * A cookie written by an older version is still read: the values it doesn't have keep their defaults.
+ * A cookie written by a newer version is rejected.
+ * If a cookie doesn't contain the packed key, its keys are parsed one by one as usual, so classes can switch to this format.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Target({ElementType.TYPE})
+public @interface PackedCookie {
+    /*
+     * The name of the cookie.
+     */
+    String value();
+
+    /*
+     * The version of the layout, 0 to 255.
+     */
+    int version() default 1;
+}
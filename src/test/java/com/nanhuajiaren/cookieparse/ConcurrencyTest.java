@@ -0,0 +1,102 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.testdatastructure.TestDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.TypedDataStructure;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ConcurrencyTest {
+    private static final CookieParser SHARED = CookieParser.builder()
+            .registerConverter(UUID.class,(text,start,end) -> UUID.fromString(text.subSequence(start,end).toString()))
+            .listener(new InMemoryCookieMetrics())
+            .valueCache(new DecodedValueCache(64))
+            .build();
+
+    @Test
+    public void builderTest() throws Exception{
+        assertTrue(SHARED.isImmutable());
+        assertThrows(IllegalStateException.class,() -> SHARED.setEncoder(new CookieParser.DefaultTextEncoder()));
+        assertThrows(IllegalStateException.class,SHARED::dontProcessEncoding);
+        assertThrows(IllegalStateException.class,() -> SHARED.setListener(null));
+
+        CookieParser mutable = new CookieParser().dontProcessEncoding();
+        assertFalse(mutable.isImmutable());
+        CookieParser copy = mutable.toBuilder().lenient(true).build();
+        mutable.setEncoder(new CookieParser.DefaultTextEncoder());
+        assertEquals("a%20b",copy.fromCookie("x; a=a%20b; y").get("a"));
+        assertEquals("a b",mutable.fromCookie("a=a%20b").get("a"));
+        assertThrows(CookieSyntaxException.class,() -> mutable.fromCookie("x; a=1"));
+        assertNull(copy.fromCookie("x;b=2",TestDataStructure.class).a);
+        assertEquals(1,copy.view("broken;a=1;;x").size());
+    }
+
+    @Test
+    public void platformThreadsTest() throws Exception{
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            hammer(executor,64);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * Virtual threads need Java 21, so they are looked up by reflection and the test is skipped on older runtimes.
+     */
+    @Test
+    public void virtualThreadsTest() throws Exception{
+        assumeTrue(Runtime.version().feature() >= 21,"Virtual threads need Java 21.");
+        ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        try {
+            hammer(executor,10000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void hammer(ExecutorService executor,int tasks) throws Exception{
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int i = 0;i < tasks;i ++){
+            int seed = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for(int j = 0;j < 200;j ++){
+                    long id = (long) seed * 1000 + j;
+                    UUID uuid = new UUID(seed,j);
+                    String cookie = "id=" + id + "; flag=" + (j % 2 == 0) + "; uuid=" + uuid + "; ch=%3d; level=LOW";
+                    TypedDataStructure data = SHARED.fromCookie(cookie,TypedDataStructure.class);
+                    assertEquals(id,data.id);
+                    assertEquals(j % 2 == 0,data.flag);
+                    assertEquals(uuid,data.uuid);
+                    assertEquals('=',data.ch);
+                    Map<String,String> written = SHARED.fromCookie(SHARED.toCookie(data));
+                    assertEquals(Long.toString(id),written.get("id"));
+                    assertEquals(uuid.toString(),written.get("uuid"));
+                    assertEquals("=",written.get("ch"));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(60,TimeUnit.SECONDS);
+        }
+    }
+}
@@ -1,8 +1,37 @@
 package com.nanhuajiaren.cookieparse;
 
+import com.nanhuajiaren.cookieparse.testdatastructure.AdaptedDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.ConstructorOnlyDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.FinalFieldDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.MutableDefaultDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.NonAsciiKeyDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.PackagePrivateConstructorDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.PackedDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.RecordDataStructure;
 import com.nanhuajiaren.cookieparse.testdatastructure.TestDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.TypedDataStructure;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class CookieParseTest {
     @Test
     public void parseTest() throws Exception{
@@ -22,4 +51,529 @@ public class CookieParseTest {
         testDataStructure.c = "你好;[]";
         System.out.println(parser.toCookie(testDataStructure));
     }
+
+    @Test
+    public void generatedAdapterTest() throws Exception{
+        assertTrue(CookieAdapter.class.isAssignableFrom(
+                Class.forName(AdaptedDataStructure.class.getName() + "_CookieAdapter")));
+        CookieParser parser = new CookieParser();
+        AdaptedDataStructure data = parser.fromCookie("a=hello;b=123;d=1.5;link=example.com;c=ignored;level=LOW",AdaptedDataStructure.class);
+        assertEquals("hello",data.a);
+        assertEquals(123,data.b);
+        assertEquals(1.5,data.c);
+        assertEquals("https://example.com",data.link);
+        assertEquals(TypedDataStructure.Level.LOW,data.level);
+        assertEquals(parser.fromCookie("a=hello; b=123; d=1.5; level=LOW; link=example.com"),parser.fromCookie(parser.toCookie(data)));
+    }
+
+    @Test
+    public void packagePrivateConstructorAdapterTest() throws Exception{
+        //The generated adapter is in the same package, so it can call a constructor that is not public.
+        assertTrue(CookieAdapter.class.isAssignableFrom(
+                Class.forName(PackagePrivateConstructorDataStructure.class.getName() + "_CookieAdapter")));
+        PackagePrivateConstructorDataStructure data = new CookieParser().fromCookie("a=hello",PackagePrivateConstructorDataStructure.class);
+        assertEquals("hello",data.a);
+        assertEquals(-1,data.b);
+    }
+
+    @Test
+    public void finalFieldWithoutAdapterTest() throws Exception{
+        //Generated code can't write a final field, so the processor leaves the class to reflection, which can.
+        assertThrows(ClassNotFoundException.class,() -> Class.forName(FinalFieldDataStructure.class.getName() + "_CookieAdapter"));
+        FinalFieldDataStructure data = new CookieParser().fromCookie("a=hello;count=5",FinalFieldDataStructure.class);
+        assertEquals("hello",data.a);
+        assertEquals(5,data.count);
+    }
+
+    @Test
+    public void tokenizeTest() throws Exception{
+        CookieParser parser = new CookieParser().dontProcessEncoding();
+        Map<String,String> expected = new HashMap<>();
+        expected.put("token","YWJj==");
+        expected.put("a","");
+        expected.put("b","x y");
+        assertEquals(expected,parser.fromCookie(" token=YWJj== ;;a=; b = x y ;"));
+        CookieSyntaxException e = assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("a=1; broken; c=3"));
+        assertEquals(5,e.getPosition());
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("  "));
+    }
+
+    @Test
+    public void parseBytesTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        String cookie = "a=hello%20world;b=123;d=%u4f60";
+        byte[] bytes = ("xx" + cookie + "yy").getBytes(StandardCharsets.US_ASCII);
+        assertEquals(parser.fromCookie(cookie),parser.fromCookie(bytes,2,cookie.length()));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(2).limit(2 + cookie.length());
+        TestDataStructure data = parser.fromCookie(direct,TestDataStructure.class);
+        assertEquals("hello world",data.a);
+        assertEquals(123,data.b);
+        assertEquals("你",data.c);
+        assertEquals(2,direct.position());
+    }
+
+    @Test
+    public void viewTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        String cookie = "_ga=GA1.2.3; sid=abc%3d; _gid=x; sid=last%20one";
+        CookieView view = parser.view(cookie);
+        assertEquals(4,view.size());
+        assertEquals("last one",view.get("sid"));
+        assertEquals("abc=",view.value(1));
+        assertNull(view.get("missing"));
+        Map<String,String> map = new HashMap<>();
+        for(Map.Entry<String,String> entry : view){
+            map.put(entry.getKey(),entry.getValue());
+        }
+        assertEquals(parser.fromCookie(cookie),map);
+    }
+
+    @Test
+    public void selectiveParsingTest() throws Exception{
+        String cookie = "_ga=GA1.2.3; b=1; a=first; d=x; c=ignored; a=second; broken";
+        assertThrows(CookieSyntaxException.class,() -> new CookieParser().fromCookie(cookie,TestDataStructure.class));
+        TestDataStructure data = new CookieParser().selectiveParsing().fromCookie(cookie,TestDataStructure.class);
+        assertEquals("first",data.a);
+        assertEquals(1,data.b);
+        assertEquals("x",data.c);
+    }
+
+    @Test
+    public void parseAllTest(){
+        List<String> cookies = new ArrayList<>();
+        for(int i = 0;i < 5000;i ++){
+            cookies.add(i % 100 == 7 ? "a=1; b=not_a_number" : "a=v" + i + "; b=" + i);
+        }
+        CookieParser parser = new CookieParser();
+        List<ParseResult<TestDataStructure>> results = parser.parseAll(cookies,TestDataStructure.class);
+        List<ParseResult<TestDataStructure>> streamed = parser.parseAll(cookies.parallelStream(),TestDataStructure.class)
+                .collect(Collectors.toList());
+        assertEquals(cookies.size(),results.size());
+        assertEquals(cookies.size(),streamed.size());
+        for(int i = 0;i < cookies.size();i ++){
+            checkBatchResult(i,results.get(i));
+            checkBatchResult(i,streamed.get(i));
+        }
+    }
+
+    @Test
+    public void parseAllUncheckedTest(){
+        List<String> cookies = new ArrayList<>();
+        for(int i = 0;i < 300;i ++){
+            cookies.add(i == 150 ? "a=poison; b=0" : "a=v" + i + "; b=" + i);
+        }
+        int poison = cookies.get(150).length();
+        CookieParser parser = new CookieParser().setListener(new CookieListener(){
+            @Override
+            public void onParse(Class<?> type,int inputLength,long nanos){
+                if(inputLength == poison){
+                    throw new IllegalStateException("poison");
+                }
+            }
+        });
+        List<ParseResult<TestDataStructure>> results = parser.parseAll(cookies,TestDataStructure.class);
+        for(int i = 0;i < cookies.size();i ++){
+            ParseResult<TestDataStructure> result = results.get(i);
+            if(cookies.get(i).length() == poison){
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError() instanceof CookieReflectException);
+                assertTrue(result.getError().getCause() instanceof IllegalStateException);
+            }else{
+                assertEquals(i,result.getValue().b);
+            }
+        }
+        assertFalse(parser.parseAll(cookies.stream(),TestDataStructure.class).skip(150).findFirst().get().isSuccess());
+    }
+
+    private static void checkBatchResult(int i,ParseResult<TestDataStructure> result){
+        assertEquals(i,result.getIndex());
+        if(i % 100 == 7){
+            assertFalse(result.isSuccess());
+            assertTrue(result.getError() instanceof CookieSyntaxException);
+        }else{
+            assertEquals("v" + i,result.getValue().a);
+            assertEquals(i,result.getValue().b);
+        }
+    }
+
+    @Test
+    public void writeCookieTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        TestDataStructure data = new TestDataStructure();
+        data.a = "hi there";
+        data.b = -456;
+        assertEquals("a=hi%20there; b=-456",parser.toCookie(data));
+        StringBuilder sb = new StringBuilder("Cookie: ");
+        parser.writeCookie(data,sb);
+        assertEquals("Cookie: a=hi%20there; b=-456",sb.toString());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        data.c = "你";
+        parser.writeCookie(data,buffer);
+        buffer.flip();
+        assertEquals("a=hi%20there; b=-456; d=%u4f60",StandardCharsets.US_ASCII.decode(buffer).toString());
+    }
+
+    @Test
+    public void valueTypesTest() throws Exception{
+        String cookie = "id=-9223372036854775808; flag=TRUE; s=-7; b=12; ch=%3b; f=2.5; level=HIGH; boxed=42; uuid=123e4567-e89b-12d3-a456-426614174000";
+        TypedDataStructure data = new CookieParser().fromCookie(cookie,TypedDataStructure.class);
+        assertEquals(Long.MIN_VALUE,data.id);
+        assertTrue(data.flag);
+        assertEquals(-7,data.s);
+        assertEquals(12,data.b);
+        assertEquals(';',data.ch);
+        assertEquals(2.5f,data.f);
+        assertEquals(TypedDataStructure.Level.HIGH,data.level);
+        assertEquals(42L,data.boxed);
+        assertNull(data.uuid);
+
+        CookieParser parser = new CookieParser()
+                .registerConverter(UUID.class,(text,start,end) -> UUID.fromString(text.subSequence(start,end).toString()));
+        data = parser.fromCookie(cookie,TypedDataStructure.class);
+        assertEquals(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"),data.uuid);
+        assertEquals(parser.fromCookie("id=-9223372036854775808; flag=true; s=-7; b=12; ch=%3b; f=2.5; level=HIGH; boxed=42; uuid=123e4567-e89b-12d3-a456-426614174000"),
+                parser.fromCookie(parser.toCookie(data)));
+
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("b=300",TypedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("ch=ab",TypedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("flag=yes",TypedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("level=MEDIUM",TypedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("a=1;d=1.5x",AdaptedDataStructure.class));
+        assertThrows(IllegalArgumentException.class,() -> parser.registerConverter(Integer.class,(text,start,end) -> 0));
+    }
+
+    @Test
+    public void malformedConverterValueTest(){
+        CookieParser parser = new CookieParser()
+                .registerConverter(UUID.class,(text,start,end) -> UUID.fromString(text.subSequence(start,end).toString()));
+        CookieSyntaxException e = assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("b=1; uuid=not-a-uuid",TypedDataStructure.class));
+        assertEquals(10,e.getPosition());
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        e = assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("uuid=not%20a%20uuid",TypedDataStructure.class));
+        assertEquals(5,e.getPosition());
+    }
+
+    @Test
+    public void parseNumberTest(){
+        Random random = new Random(3);
+        for(int i = 0;i < 100000;i ++){
+            String text;
+            switch (i % 4){
+                case 0:
+                    text = Long.toString(random.nextLong() % 100000000000L) + "." + random.nextInt(100000);
+                    break;
+                case 1:
+                    text = random.nextInt(1000) + "e" + (random.nextInt(50) - 25);
+                    break;
+                case 2:
+                    text = Double.toString(random.nextDouble() * Math.pow(10,random.nextInt(40) - 20));
+                    break;
+                default:
+                    text = Float.toString(random.nextFloat() * 1000);
+                    break;
+            }
+            assertEquals(Double.parseDouble(text),Numbers.parseDouble(text,0,text.length()),text);
+            assertEquals(Float.parseFloat(text),Numbers.parseFloat(text,0,text.length()),text);
+        }
+        assertEquals(Long.MAX_VALUE,Numbers.parseLong("+9223372036854775807",0,20));
+        assertThrows(NumberFormatException.class,() -> Numbers.parseLong("9223372036854775808",0,19));
+        assertThrows(NumberFormatException.class,() -> Numbers.parseInt("-",0,1));
+        assertThrows(NumberFormatException.class,() -> Numbers.parseDouble("1e",0,2));
+    }
+
+    @Test
+    public void metricsTest() throws Exception{
+        InMemoryCookieMetrics metrics = new InMemoryCookieMetrics();
+        CookieParser parser = new CookieParser().setListener(metrics);
+        parser.fromCookie("a=hello;b=123",TestDataStructure.class);
+        parser.fromCookie("a=hello",TestDataStructure.class);
+        parser.fromCookie("x=1");
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("a=hello;b=x",TestDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("broken"));
+        TestDataStructure data = new TestDataStructure();
+        data.a = "hi";
+        String cookie = parser.toCookie(data);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        parser.writeCookie(data,buffer);
+
+        assertEquals(3,metrics.getParseCount());
+        assertEquals(2,metrics.getParsesByTarget().get(TestDataStructure.class));
+        assertEquals("a=hello;b=123".length() + "a=hello".length() + "x=1".length(),metrics.getBytesIn());
+        assertEquals(2,metrics.getWriteCount());
+        assertEquals(cookie.length() + buffer.position(),metrics.getBytesOut());
+        assertEquals(2,metrics.getErrorCount());
+        assertEquals(2,metrics.getErrorsByType().get(CookieSyntaxException.class));
+        assertEquals(1,metrics.getErrorsByTarget().get(Map.class));
+        assertEquals(5,metrics.getBindingHits() + metrics.getBindingMisses());
+        assertTrue(metrics.getBindingMisses() <= 1);
+        assertEquals(3,metrics.getParseLatency().getCount());
+        assertTrue(metrics.getParseLatency().getQuantileBound(0.5) <= metrics.getParseLatency().getQuantileBound(1));
+        assertEquals(0,new InMemoryCookieMetrics().getWriteLatency().getQuantileBound(0.99));
+    }
+
+    @Test
+    public void metricsSetCookieAndTrackingTest() throws Exception{
+        InMemoryCookieMetrics metrics = new InMemoryCookieMetrics();
+        CookieParser parser = new CookieParser().setListener(metrics);
+        SetCookie setCookie = parser.parseSetCookie("id=a3fWa; Secure");
+        assertThrows(CookieSyntaxException.class,() -> parser.parseSetCookie(" ; Secure"));
+        String header = parser.toSetCookie(setCookie);
+        assertEquals(1,metrics.getParsesByTarget().get(SetCookie.class));
+        assertEquals(1,metrics.getErrorsByTarget().get(SetCookie.class));
+        assertEquals(1,metrics.getWriteCount());
+        assertEquals(header.length(),metrics.getBytesOut());
+
+        TestDataStructure data = new TestDataStructure();
+        data.a = "hi";
+        data.b = 1;
+        List<String> headers = parser.toSetCookies(data);
+        assertEquals(2,metrics.getWriteCount());
+        assertEquals(header.length() + headers.get(0).length() + headers.get(1).length(),metrics.getBytesOut());
+
+        TrackedCookie<TestDataStructure> tracked = parser.track(data);
+        assertEquals(3,metrics.getWriteCount());
+        data.b = 2;
+        long bytesOut = metrics.getBytesOut();
+        assertEquals("b=2",parser.toChangedCookie(tracked));
+        parser.getDeletedKeys(tracked);
+        parser.toChangedSetCookies(tracked);
+        assertEquals(6,metrics.getWriteCount());
+        assertEquals(bytesOut + 3 * "b=2".length(),metrics.getBytesOut());
+
+        parser.fromCookieTracked("a=hi",TestDataStructure.class);
+        assertEquals(2,metrics.getParseCount());
+        assertEquals(7,metrics.getWriteCount());
+        assertEquals(3,metrics.getBindingHits() + metrics.getBindingMisses());
+    }
+
+    @Test
+    public void valueCacheTest() throws Exception{
+        DecodedValueCache cache = new DecodedValueCache(6);
+        assertEquals(8,cache.getCapacity());
+        CookieParser parser = CookieParser.builder().valueCache(cache).build();
+        TestDataStructure first = parser.fromCookie("a=hello%20world; d=plain",TestDataStructure.class);
+        TestDataStructure second = parser.fromCookie(ByteBuffer.wrap("d=plain;a=hello%20world".getBytes(StandardCharsets.US_ASCII)),TestDataStructure.class);
+        assertEquals("hello world",second.a);
+        assertTrue(first.a == second.a && first.c == second.c);
+        assertEquals(2,cache.getHitCount());
+        assertEquals(2,cache.getMissCount());
+        assertEquals("hello world",parser.view("x=1; a=hello%20world").get("a"));
+        assertEquals(3,cache.getHitCount());
+
+        //The same raw value unescaped by another encoder is a different entry.
+        CookieParser plain = CookieParser.builder().dontProcessEncoding().valueCache(cache).build();
+        assertEquals("hello%20world",plain.fromCookie("a=hello%20world").get("a"));
+        assertEquals(3,cache.getMissCount());
+
+        for(int i = 0;i < 1000;i ++){
+            assertEquals("v" + i + " x",parser.fromCookie("a=v" + i + "%20x").get("a"));
+        }
+        assertEquals(0.0,new DecodedValueCache(1).getHitRate());
+        String longValue = "0123456789";
+        DecodedValueCache small = new DecodedValueCache(4,4);
+        CookieParser.builder().valueCache(small).build().fromCookie("a=" + longValue);
+        assertEquals(0,small.getMissCount());
+    }
+
+    @Test
+    public void changedCookieTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        TrackedCookie<AdaptedDataStructure> tracked = parser.fromCookieTracked("a=hello;b=007;d=1.5;link=example.com",AdaptedDataStructure.class);
+        assertEquals("",parser.toChangedCookie(tracked));
+        assertTrue(parser.toChangedSetCookies(tracked).isEmpty());
+
+        AdaptedDataStructure object = tracked.get();
+        object.b = 8;
+        object.level = TypedDataStructure.Level.HIGH;
+        object.link = null;
+        object.a = "hello";
+        assertEquals("b=8; level=HIGH",parser.toChangedCookie(tracked));
+        assertEquals(Collections.singletonList("link"),parser.getDeletedKeys(tracked));
+        List<String> headers = parser.toChangedSetCookies(tracked);
+        assertEquals(3,headers.size());
+        assertEquals("b=8; Max-Age=3600; Path=/; HttpOnly; SameSite=Lax",headers.get(0));
+        assertEquals("link=; Expires=Thu, 01 Jan 1970 00:00:00 GMT; Max-Age=0; Path=/; HttpOnly; SameSite=Lax",headers.get(2));
+
+        TrackedCookie<AdaptedDataStructure> again = parser.track(object);
+        assertEquals("",parser.toChangedCookie(again));
+        assertTrue(parser.getDeletedKeys(again).isEmpty());
+    }
+
+    @Test
+    public void fillTargetTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        TestDataStructure target = new TestDataStructure();
+        assertSame(target,parser.fromCookie("a=hello;b=1;d=x",target));
+        parser.fromCookie("b=2",target);
+        assertNull(target.a);
+        assertNull(target.c);
+        assertEquals(2,target.b);
+        parser.fromCookie("a=again",target);
+        assertEquals(0,target.b);
+
+        CookieObjectPool<AdaptedDataStructure> pool = new CookieObjectPool<>(AdaptedDataStructure.class,4);
+        AdaptedDataStructure first = parser.fromCookie("a=x;b=3;link=example.com",pool);
+        assertEquals("https://example.com",first.link);
+        pool.release(first);
+        assertEquals(1,pool.size());
+        AdaptedDataStructure second = parser.fromCookie("b=4",pool);
+        assertSame(first,second);
+        assertNull(second.a);
+        assertEquals(4,second.b);
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("b=x",pool));
+        assertEquals(1,pool.size());
+        assertThrows(IllegalArgumentException.class,() -> new CookieObjectPool<>(RecordDataStructure.class,4));
+    }
+
+    @Test
+    public void resetMutableDefaultTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        MutableDefaultDataStructure first = parser.fromCookie("name=a",new MutableDefaultDataStructure());
+        MutableDefaultDataStructure second = parser.fromCookie("x=1",new MutableDefaultDataStructure());
+        assertEquals("a",first.name);
+        assertEquals("anonymous",second.name);
+        //Every reset gets its own list, so one object's changes never show up in another.
+        first.tags.add("first");
+        assertNotSame(first.tags,second.tags);
+        assertTrue(second.tags.isEmpty());
+        parser.fromCookie("x=1",first);
+        assertTrue(first.tags.isEmpty());
+        assertEquals("anonymous",first.name);
+    }
+
+    @Test
+    public void nonAsciiKeyTest(){
+        CookieParser parser = new CookieParser();
+        NonAsciiKeyDataStructure data = new NonAsciiKeyDataStructure();
+        data.name = "a";
+        //Rejected when the binding is built, before either the String or the byte writer runs.
+        assertThrows(IllegalArgumentException.class,() -> parser.toCookie(data));
+        assertThrows(IllegalArgumentException.class,() -> parser.writeCookie(data,ByteBuffer.allocate(64)));
+    }
+
+    @Test
+    public void recordTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        RecordDataStructure record = parser.fromCookie("a=hello%20world;b=5;d=1.5;level=HIGH;x=y",RecordDataStructure.class);
+        assertEquals(new RecordDataStructure("hello world",5,1.5,TypedDataStructure.Level.HIGH),record);
+        assertEquals(new RecordDataStructure(null,0,0,null),parser.fromCookie("x=y",RecordDataStructure.class));
+        assertEquals("a=hello%20world; b=5; d=1.5; level=HIGH",parser.toCookie(record));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("b=five",RecordDataStructure.class));
+        assertThrows(CookieReflectException.class,() -> parser.fromCookie("b=5",record));
+    }
+
+    @Test
+    public void constructorOnlyClassTest(){
+        //Only records are made through a constructor, so a plain class needs a constructor without parameter.
+        CookieReflectException e = assertThrows(CookieReflectException.class,
+                () -> new CookieParser().fromCookie("min=1; max=10; admin=true",ConstructorOnlyDataStructure.class));
+        assertTrue(e.getMessage().contains("without parameter"));
+    }
+
+    @Test
+    public void readOnlyFieldAccessorTest() throws Exception{
+        //A record field can't be written, but it is still read through a handle.
+        FieldAccessor accessor = FieldAccessor.of(RecordDataStructure.class.getDeclaredField("b"));
+        assertEquals("HandleAccessor",accessor.getClass().getSimpleName());
+        RecordDataStructure record = new RecordDataStructure("a",5,1.5,null);
+        assertEquals(5,accessor.getInt(record));
+        assertEquals(5,accessor.get(record));
+        assertThrows(IllegalAccessException.class,() -> accessor.setInt(record,6));
+        assertThrows(IllegalAccessException.class,() -> accessor.set(record,6));
+    }
+
+    @Test
+    public void packedTest() throws Exception{
+        CookieParser parser = new CookieParser()
+                .registerConverter(UUID.class,(text,start,end) -> UUID.fromString(text.subSequence(start,end).toString()));
+        PackedDataStructure object = new PackedDataStructure();
+        object.name = "你好, world 😀\uD800";
+        object.count = -3;
+        object.big = Long.MIN_VALUE;
+        object.ratio = 0.1;
+        object.flag = true;
+        object.ch = 'é';
+        object.boxed = 300;
+        object.level = TypedDataStructure.Level.HIGH;
+        object.uuid = UUID.randomUUID();
+        String cookie = parser.toCookie(object);
+        assertTrue(cookie.startsWith("p="));
+        assertTrue(cookie.substring(2).matches("[A-Za-z0-9_-]+"));
+        assertEquals(Collections.singletonList(cookie),parser.toSetCookies(object));
+
+        PackedDataStructure parsed = parser.fromCookie("x=1; " + cookie,PackedDataStructure.class);
+        assertEquals(object.name,parsed.name);
+        assertEquals(-3,parsed.count);
+        assertEquals(Long.MIN_VALUE,parsed.big);
+        assertEquals(0.1,parsed.ratio);
+        assertTrue(parsed.flag);
+        assertEquals('é',parsed.ch);
+        assertEquals(300,parsed.boxed);
+        assertNull(parsed.maybe);
+        assertEquals(TypedDataStructure.Level.HIGH,parsed.level);
+        assertEquals(object.uuid,parsed.uuid);
+
+        //Written by a version with only the first two fields: [1, 0x02 'a', zigzag(5)].
+        PackedDataStructure old = parser.fromCookie("p=AQJhCg",PackedDataStructure.class);
+        assertEquals("a",old.name);
+        assertEquals(5,old.count);
+        assertNull(old.level);
+        //Newer than version 2.
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("p=AwJhCg",PackedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("p=AQNh",PackedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("p=AQ*h",PackedDataStructure.class));
+        //Without the packed key the keys are parsed one by one.
+        assertEquals(7,parser.fromCookie("name=b; n=7",PackedDataStructure.class).count);
+        //The packed key wins over keys around it, wherever it is.
+        assertEquals(-3,parser.fromCookie("n=7; " + cookie + "; n=8",PackedDataStructure.class).count);
+        assertEquals(-3,parser.fromCookie("n=7; " + cookie,new PackedDataStructure()).count);
+        //A converter failing on a packed value.
+        String malformed = new CookieParser().registerConverter(UUID.class,new ValueConverter<UUID>(){
+            @Override
+            public UUID parse(CharSequence text,int start,int end){
+                return null;
+            }
+
+            @Override
+            public String format(UUID value){
+                return "not-a-uuid";
+            }
+        }).toCookie(object);
+        CookieSyntaxException e = assertThrows(CookieSyntaxException.class,() -> parser.fromCookie("x=1; " + malformed,PackedDataStructure.class));
+        assertEquals(7,e.getPosition());
+
+        TrackedCookie<PackedDataStructure> tracked = parser.fromCookieTracked(cookie,PackedDataStructure.class);
+        assertEquals("",parser.toChangedCookie(tracked));
+        tracked.get().count = 4;
+        assertEquals(parser.toCookie(tracked.get()),parser.toChangedCookie(tracked));
+    }
+
+    @Test
+    public void malformedPackedVarintTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        //A string length of 10 bytes that sets the sign bit.
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie(packed(1,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0x01),PackedDataStructure.class));
+        //A string length longer than 64 bits, and one cut off.
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie(packed(1,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0xFF,0x01),PackedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie(packed(1,0x80),PackedDataStructure.class));
+        //A string length just past the end.
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie(packed(1,0x03,'a'),PackedDataStructure.class));
+
+        //Enum ordinals after empty values for the fields before level: 2 is HIGH, 0xFFFFFFFF and 3 are no constant.
+        assertEquals(TypedDataStructure.Level.HIGH,parser.fromCookie(packed(1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0x02),PackedDataStructure.class).level);
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie(packed(1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0xFF,0xFF,0xFF,0xFF,0x0F),PackedDataStructure.class));
+        assertThrows(CookieSyntaxException.class,() -> parser.fromCookie(packed(1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0x03),PackedDataStructure.class));
+    }
+
+    /*
+     * @return The packed cookie of PackedDataStructure with {@code bytes} as its value.
+     */
+    private static String packed(int... bytes){
+        byte[] value = new byte[bytes.length];
+        for(int i = 0;i < bytes.length;i ++){
+            value[i] = (byte) bytes[i];
+        }
+        return "p=" + Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
 }
@@ -0,0 +1,141 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.testdatastructure.TestDataStructure;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DefaultTextEncoderTest {
+    /*
+     * Characters the legacy encoder handles correctly: it neither escapes '%' nor pads "%u" to four digits.
+     */
+    private static final String LEGACY_SAFE = "abcXYZ019-_.~!*'+ []()=,\"/?@:;你好世界あ￥";
+    private static final String ALL = LEGACY_SAFE + "%éÿĀ࿿";
+
+    private final CookieParser.DefaultTextEncoder encoder = new CookieParser.DefaultTextEncoder();
+
+    @Test
+    public void sameAsLegacyTest(){
+        Random random = new Random(42);
+        for(int i = 0;i < 10000;i ++){
+            String text = randomText(random,LEGACY_SAFE);
+            String escaped = LegacyEncoder.escape(text);
+            assertEquals(escaped,encoder.escape(text));
+            assertEquals(LegacyEncoder.unescape(escaped),encoder.unescape(escaped));
+        }
+        assertEquals(LegacyEncoder.unescape("%4g%u12%41%u4F60%"),encoder.unescape("%4g%u12%41%u4F60%"));
+    }
+
+    @Test
+    public void roundTripTest(){
+        Random random = new Random(7);
+        for(int i = 0;i < 10000;i ++){
+            String text = randomText(random,ALL);
+            assertEquals(text,encoder.unescape(encoder.escape(text)));
+        }
+        assertEquals("%u00e9",encoder.escape("é"));
+        assertEquals("%25",encoder.escape("%"));
+    }
+
+    @Test
+    public void noProcessingTest(){
+        String plain = "hello_world-123";
+        assertSame(plain,encoder.escape(plain));
+        assertSame(plain,encoder.unescape(plain));
+    }
+
+    @Test
+    public void rangeTest() throws Exception{
+        String text = "x=a b%u4F60;";
+        StringBuilder sb = new StringBuilder();
+        encoder.unescape(text,2,11,sb);
+        assertEquals(encoder.unescape("a b%u4F60"),sb.toString());
+        sb.setLength(0);
+        encoder.escape("xa b你",1,5,sb);
+        assertEquals(encoder.escape("a b你"),sb.toString());
+        assertFalse(encoder.needsUnescape(text,0,5));
+        assertTrue(encoder.needsUnescape(text,0,6));
+        assertFalse(encoder.needsEscape("abc",0,3));
+        assertTrue(encoder.needsEscape("a b",0,3));
+
+        //Encoders only implementing the String methods still work through the parser.
+        TextEncoder upperCase = new TextEncoder() {
+            @Override
+            public String escape(String original) {
+                return original.toUpperCase();
+            }
+
+            @Override
+            public String unescape(String encoded) {
+                return encoded.toLowerCase();
+            }
+        };
+        CookieParser parser = new CookieParser().setEncoder(upperCase);
+        assertEquals("hello",parser.fromCookie("a=HELLO").get("a"));
+        assertEquals(5,parser.fromCookie("a=X;b=5",TestDataStructure.class).b);
+        assertEquals("a=HI",parser.toCookie(Collections.singletonMap("a","hi")));
+
+        //So do subclasses of the default encoder overriding one of them.
+        parser.setEncoder(new CookieParser.DefaultTextEncoder(){
+            @Override
+            public String unescape(String encoded) {
+                return new StringBuilder(super.unescape(encoded)).reverse().toString();
+            }
+        });
+        assertEquals(" ba",parser.fromCookie("a=ab%20").get("a"));
+        assertEquals("a=a%20b",parser.toCookie(Collections.singletonMap("a","a b")));
+    }
+
+    private static String randomText(Random random,String alphabet){
+        int length = random.nextInt(12);
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0;i < length;i ++){
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    /*
+     * The regex based implementation DefaultTextEncoder used to have (with the replacement quoted).
+     */
+    private static class LegacyEncoder{
+        static String escape(String original) {
+            StringBuilder sb = new StringBuilder();
+            for(char c : original.toCharArray()){
+                if(c > 127 || " []()=,\"/?@:;".indexOf(c) != -1){
+                    sb.append("%");
+                    if(c > 127) {
+                        sb.append("u");
+                    }
+                    sb.append(Integer.toHexString(c));
+                }else{
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+
+        static String unescape(String encoded) {
+            return parsePattern(parsePattern(encoded,Pattern.compile("%u([0-9a-fA-F]{4})")),Pattern.compile("%([0-9a-fA-F]{2})"));
+        }
+
+        private static String parsePattern(String encoded, Pattern pattern) {
+            Matcher matcher = pattern.matcher(encoded);
+            StringBuilder sb = new StringBuilder(encoded.length());
+            while(matcher.find()){
+                char ch = (char) Integer.parseInt(matcher.group(1),16);
+                matcher.appendReplacement(sb,Matcher.quoteReplacement(String.valueOf(ch)));
+            }
+            matcher.appendTail(sb);
+            return sb.toString();
+        }
+    }
+}
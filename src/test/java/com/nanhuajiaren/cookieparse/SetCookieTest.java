@@ -0,0 +1,104 @@
+package com.nanhuajiaren.cookieparse;
+
+import com.nanhuajiaren.cookieparse.testdatastructure.AdaptedDataStructure;
+import com.nanhuajiaren.cookieparse.testdatastructure.TestDataStructure;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SetCookieTest {
+    private static final long NOV_6_1994 = 784111777000L;
+
+    @Test
+    public void httpDatesTest() throws Exception{
+        Random random = new Random(17);
+        for(int i = 0;i < 10000;i ++){
+            long millis = (random.nextLong() & Long.MAX_VALUE) % 315537897600000L - 62135596800000L;
+            long seconds = Math.floorDiv(millis,1000L);
+            String expected = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                    ZonedDateTime.ofInstant(java.time.Instant.ofEpochSecond(seconds),java.time.ZoneOffset.UTC));
+            String formatted = HttpDates.format(millis);
+            //java.time doesn't pad the day of month.
+            assertEquals(expected,formatted.charAt(5) == '0' ? formatted.substring(0,5) + formatted.substring(6) : formatted);
+            if(seconds >= -11644473600L){
+                assertEquals(seconds * 1000L,HttpDates.parse(formatted));
+            }
+        }
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT",HttpDates.format(0));
+        assertEquals(NOV_6_1994,HttpDates.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        assertEquals(NOV_6_1994,HttpDates.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        assertEquals(NOV_6_1994,HttpDates.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(NOV_6_1994,HttpDates.parse("sun, 6 nov 1994 8:49:37"));
+        assertEquals(1259542800000L,HttpDates.parse("Mon, 30-Nov-2009 01:00:00 GMT"));
+        assertThrows(CookieSyntaxException.class,() -> HttpDates.parse("Sun, 31 Nov 1994 08:49:37 GMT"));
+        assertThrows(CookieSyntaxException.class,() -> HttpDates.parse("Sun, 06 Nov 1994 24:00:00 GMT"));
+        assertThrows(CookieSyntaxException.class,() -> HttpDates.parse("Sun, 06 Nov 1600 08:49:37 GMT"));
+        assertThrows(CookieSyntaxException.class,() -> HttpDates.parse("tomorrow"));
+    }
+
+    @Test
+    public void parseSetCookieTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        SetCookie cookie = parser.parseSetCookie(
+                " id = a%20b ; expires=Sun, 06 Nov 1994 08:49:37 GMT; Max-Age=60; DOMAIN=.Example.COM; Path=/docs;secure; HttpOnly; SameSite=strict; Unknown=1");
+        assertEquals("id",cookie.getName());
+        assertEquals("a b",cookie.getValue());
+        assertEquals(NOV_6_1994,cookie.getExpires());
+        assertEquals(60,cookie.getMaxAge());
+        assertEquals("example.com",cookie.getDomain());
+        assertEquals("/docs",cookie.getPath());
+        assertTrue(cookie.isSecure());
+        assertTrue(cookie.isHttpOnly());
+        assertEquals(SetCookie.SameSite.STRICT,cookie.getSameSite());
+
+        SetCookie ignored = parser.parseSetCookie("id=; Expires=soon; Max-Age=+5; Path=docs; SameSite=Sometimes; Securely");
+        assertEquals("",ignored.getValue());
+        assertEquals(SetCookie.UNSET,ignored.getExpires());
+        assertEquals(SetCookie.UNSET,ignored.getMaxAge());
+        assertNull(ignored.getPath());
+        assertNull(ignored.getSameSite());
+        assertFalse(ignored.isSecure());
+
+        assertThrows(CookieSyntaxException.class,() -> parser.parseSetCookie("id; Secure"));
+        assertThrows(CookieSyntaxException.class,() -> parser.parseSetCookie("  "));
+    }
+
+    @Test
+    public void toSetCookieTest() throws Exception{
+        CookieParser parser = new CookieParser();
+        SetCookie cookie = SetCookie.builder("id","a b")
+                .expires(NOV_6_1994 + 999)
+                .maxAge(0)
+                .domain("example.com")
+                .path("/")
+                .secure(true)
+                .httpOnly(true)
+                .sameSite(SetCookie.SameSite.NONE)
+                .build();
+        String header = parser.toSetCookie(cookie);
+        assertEquals("id=a%20b; Expires=Sun, 06 Nov 1994 08:49:37 GMT; Max-Age=0; Domain=example.com; Path=/; Secure; HttpOnly; SameSite=None",header);
+        SetCookie parsed = parser.parseSetCookie(header);
+        assertEquals(header,parser.toSetCookie(parsed));
+        assertEquals("id=a b",SetCookie.builder("id","a b").build().toString());
+
+        TestDataStructure data = new TestDataStructure();
+        data.a = "x";
+        data.b = 1;
+        assertEquals(Arrays.asList("a=x","b=1"),parser.toSetCookies(data));
+        assertEquals(Collections.emptyList(),parser.toSetCookies(null));
+
+        AdaptedDataStructure adapted = new AdaptedDataStructure();
+        adapted.a = "y";
+        assertEquals("a=y; Max-Age=3600; Path=/; HttpOnly; SameSite=Lax",parser.toSetCookies(adapted).get(0));
+    }
+}
@@ -0,0 +1,30 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import com.nanhuajiaren.cookieparse.annotations.CookieAttributes;
+import com.nanhuajiaren.cookieparse.annotations.DeserializeMethod;
+import com.nanhuajiaren.cookieparse.annotations.GenerateAdapter;
+import com.nanhuajiaren.cookieparse.annotations.NoSerializeOrDeserialize;
+import com.nanhuajiaren.cookieparse.annotations.SerializeMethod;
+import com.nanhuajiaren.cookieparse.annotations.SerializedName;
+
+@GenerateAdapter
+@CookieAttributes(path = "/",maxAge = 3600,httpOnly = true,sameSite = "lax")
+public class AdaptedDataStructure {
+    public String a;
+    public int b;
+    @SerializedName("d")
+    public double c;
+    public TypedDataStructure.Level level;
+    @NoSerializeOrDeserialize
+    public String link;
+
+    @SerializeMethod("link")
+    void setLink(String cookieValue){
+        link = "https://" + cookieValue;
+    }
+
+    @DeserializeMethod("link")
+    String getLink(){
+        return link == null ? null : link.substring("https://".length());
+    }
+}
@@ -0,0 +1,20 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+/*
+ * Not a record, so it is not made through its constructor: the fields are declared in another order than the parameters,
+ * and a private field must never be set from a cookie.
+ */
+public class ConstructorOnlyDataStructure {
+    public final int max;
+    public final int min;
+    private boolean admin;
+
+    public ConstructorOnlyDataStructure(int min,int max){
+        this.min = min;
+        this.max = max;
+    }
+
+    public boolean isAdmin(){
+        return admin;
+    }
+}
@@ -0,0 +1,13 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import com.nanhuajiaren.cookieparse.annotations.GenerateAdapter;
+
+@GenerateAdapter
+public class FinalFieldDataStructure {
+    public String a;
+    public final int count;
+
+    public FinalFieldDataStructure(){
+        count = -1;
+    }
+}
@@ -0,0 +1,9 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MutableDefaultDataStructure {
+    public String name = "anonymous";
+    public List<String> tags = new ArrayList<>();
+}
@@ -0,0 +1,8 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import com.nanhuajiaren.cookieparse.annotations.SerializedName;
+
+public class NonAsciiKeyDataStructure {
+    @SerializedName("caf\u00e9")
+    public String name;
+}
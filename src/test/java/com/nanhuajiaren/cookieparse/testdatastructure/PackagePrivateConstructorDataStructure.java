@@ -0,0 +1,13 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import com.nanhuajiaren.cookieparse.annotations.GenerateAdapter;
+
+@GenerateAdapter
+public class PackagePrivateConstructorDataStructure {
+    public String a;
+    public int b;
+
+    PackagePrivateConstructorDataStructure(){
+        b = -1;
+    }
+}
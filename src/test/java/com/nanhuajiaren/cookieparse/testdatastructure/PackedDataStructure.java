@@ -0,0 +1,21 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import com.nanhuajiaren.cookieparse.annotations.PackedCookie;
+import com.nanhuajiaren.cookieparse.annotations.SerializedName;
+
+import java.util.UUID;
+
+@PackedCookie(value = "p",version = 2)
+public class PackedDataStructure {
+    public String name;
+    @SerializedName("n")
+    public int count;
+    public long big;
+    public double ratio;
+    public boolean flag;
+    public char ch;
+    public Integer boxed;
+    public Boolean maybe;
+    public TypedDataStructure.Level level;
+    public UUID uuid;
+}
@@ -0,0 +1,6 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import com.nanhuajiaren.cookieparse.annotations.SerializedName;
+
+public record RecordDataStructure(String a,int b,@SerializedName("d") double c,TypedDataStructure.Level level){
+}
@@ -0,0 +1,19 @@
+package com.nanhuajiaren.cookieparse.testdatastructure;
+
+import java.util.UUID;
+
+public class TypedDataStructure {
+    public long id;
+    public boolean flag;
+    public short s;
+    public byte b;
+    public char ch;
+    public float f;
+    public Level level;
+    public Long boxed;
+    public UUID uuid;
+
+    public enum Level{
+        LOW,HIGH
+    }
+}